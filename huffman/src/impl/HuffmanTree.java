@@ -146,6 +146,75 @@ public class HuffmanTree {
 		enCode();
 	}
 
+	/**
+	 * Custom constructor that takes the frequency of each character instead of the text itself and builds the
+	 * Huffman Tree for it. This is used when the frequencies were counted elsewhere, e.g. while streaming a file
+	 * that is too large to be held in a string.
+	 * @param frequencyMap The frequency of occurrence of each character
+	 */
+	public HuffmanTree(HashMap<Character, Integer> frequencyMap) {
+		this.frequencyMap = new HashMap<>(frequencyMap);
+		minHeap = new PriorityQueue<>();
+		this.codeMap = new HashMap<>();
+		this.decodeMap = new HashMap<>();
+		for(Character c: this.frequencyMap.keySet()) {
+			minHeap.offer(new Node(null, null, this.frequencyMap.get(c), c));
+		}
+		buildHuffmanTree();
+		enCode();
+	}
+
+	/**
+	 * Counts the frequency of every character of a sequence into an array indexed by the character.
+	 * This is much faster than updating a HashMap for every character and is used for large inputs.
+	 * @param s The characters to count
+	 * @param counts Array of length 65536 that the counts are added to
+	 */
+	public static void countFreq(CharSequence s, long[] counts) {
+		for(int i = 0; i < s.length(); i++) {
+			counts[s.charAt(i)]++;
+		}
+	}
+
+	/**
+	 * Computes the Huffman code length of every symbol by repeatedly merging the two least frequent nodes,
+	 * like {@link #buildHuffmanTree()} but on arrays, so it works for symbols that are not characters and avoids
+	 * building nodes and maps when only the lengths are needed. A lone symbol gets one bit, like the "0" code
+	 * {@link util.BlockArchive} stores for it.
+	 * @param freq the frequency of every symbol
+	 * @return the code length of every symbol
+	 */
+	public static int[] buildCodeLengths(int[] freq) {
+		int n = freq.length;
+		int[] lengths = new int[n];
+		if(n == 1) {
+			lengths[0] = 1; // A lone symbol still needs one bit
+		}
+		if(n <= 1) return lengths;
+		long[] weight = new long[2 * n - 1];
+		int[] parent = new int[2 * n - 1];
+		PriorityQueue<Integer> minHeap = new PriorityQueue<>((a, b) -> Long.compare(weight[a], weight[b]));
+		for(int i = 0; i < n; i++) {
+			weight[i] = freq[i];
+			minHeap.offer(i);
+		}
+		// Internal nodes get increasing numbers, so every parent has a larger number than its children
+		for(int next = n; next < 2 * n - 1; next++) {
+			int left = minHeap.poll();
+			int right = minHeap.poll();
+			weight[next] = weight[left] + weight[right];
+			parent[left] = next;
+			parent[right] = next;
+			minHeap.offer(next);
+		}
+		int[] depth = new int[2 * n - 1];
+		for(int i = 2 * n - 3; i >= 0; i--) {
+			depth[i] = depth[parent[i]] + 1;
+		}
+		System.arraycopy(depth, 0, lengths, 0, n);
+		return lengths;
+	}
+
 	/**
 	 * This method builds the Huffman Tree for the current HuffmanTree object. The method
 	 * uses a priority queue of nodes to construct the tree in a bottom-up manner.
@@ -177,8 +246,17 @@ public class HuffmanTree {
 	 */
 	// Count the frequency of the characters
 	private void countFreq(String s){
-		for(char c: s.toCharArray()) {
-			frequencyMap.put(c, frequencyMap.getOrDefault(c, 0) + 1);
+		if(s.length() < Character.MAX_VALUE) {
+			// Short strings: cheaper than clearing and scanning a full counting array
+			for(char c: s.toCharArray()) {
+				frequencyMap.put(c, frequencyMap.getOrDefault(c, 0) + 1);
+			}
+			return;
+		}
+		long[] counts = new long[Character.MAX_VALUE + 1];
+		countFreq(s, counts);
+		for(int c = 0; c < counts.length; c++) {
+			if(counts[c] > 0) frequencyMap.put((char) c, (int) counts[c]);
 		}
 	}
 
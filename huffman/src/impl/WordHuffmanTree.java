@@ -0,0 +1,185 @@
+package impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * <p>This class builds a canonical Huffman code whose symbols are whole words and the separators between them,
+ * instead of single characters as in {@link impl.HuffmanTree}. A word is a run of letters and digits; a separator
+ * is a run of any other characters. For natural language text this gives much shorter output, and decoding one
+ * code produces a whole word.</p><br>
+ * The code is canonical: it is fully described by the code length of every symbol, ordered by length. Only the
+ * dictionary in that order and the lengths have to be stored, and decoding needs no tree.<br>
+ * The WordHuffmanTree class contains the following elements:
+ * <ul>
+ * <li><b>dictionary</b> - a HashMap (separate chaining, i.e. open hashing) that maps every word to its symbol number</li>
+ * <li><b>words</b> - the words ordered by symbol number, which is the canonical code order</li>
+ * <li><b>codeLengths</b> - the code length of every symbol</li>
+ * <li><b>codes</b> - the code of every symbol, stored in the lowest bits</li>
+ * <li><b>symbols</b> - the text as a sequence of symbol numbers</li>
+ * </ul>
+ */
+public class WordHuffmanTree {
+
+	/**
+	 * the longest word or separator; longer runs are split into several symbols
+	 */
+	public static final int MAX_WORD_LENGTH = 1024;
+
+	/**
+	 * a HashMap that maps every word to its symbol number
+	 */
+	private HashMap<String, Integer> dictionary;
+
+	/**
+	 * the words ordered by symbol number, which is the canonical code order
+	 */
+	private List<String> words;
+
+	/**
+	 * the code length of every symbol
+	 */
+	private int[] codeLengths;
+
+	/**
+	 * the code of every symbol, stored in the lowest bits
+	 */
+	private long[] codes;
+
+	/**
+	 * the text as a sequence of symbol numbers
+	 */
+	private int[] symbols;
+
+	// Getter
+	/**
+	 * Getter for the dictionary that maps every word to its symbol number.
+	 * @return The dictionary.
+	 */
+	public HashMap<String, Integer> getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * Getter for the words in canonical code order.
+	 * @return The words, indexed by symbol number.
+	 */
+	public List<String> getWords() {
+		return words;
+	}
+
+	/**
+	 * Getter for the code lengths.
+	 * @return The code length of every symbol, indexed by symbol number.
+	 */
+	public int[] getCodeLengths() {
+		return codeLengths;
+	}
+
+	/**
+	 * Getter for the codes.
+	 * @return The code of every symbol in the lowest bits, indexed by symbol number.
+	 */
+	public long[] getCodes() {
+		return codes;
+	}
+
+	/**
+	 * Getter for the text as symbol numbers. Only available for a tree built from a text.
+	 * @return The symbol number of every word of the text, in order.
+	 */
+	public int[] getSymbols() {
+		return symbols;
+	}
+
+	// Constructors
+	/**
+	 * Custom constructor that splits a string into words and separators, counts them and builds the
+	 * canonical Huffman code for them.
+	 * @param s The string to be compressed
+	 */
+	public WordHuffmanTree(String s) {
+		dictionary = new HashMap<>();
+		List<String> firstSeen = new ArrayList<>();
+		int[] tokens = new int[16];
+		int tokenCount = 0;
+		int[] freq = new int[16];
+		// Split the text into words and separators and number them in order of first occurrence
+		int start = 0;
+		while(start < s.length()) {
+			boolean word = Character.isLetterOrDigit(s.charAt(start));
+			int end = start + 1;
+			while(end < s.length() && end - start < MAX_WORD_LENGTH && Character.isLetterOrDigit(s.charAt(end)) == word) {
+				end++;
+			}
+			String token = s.substring(start, end);
+			Integer id = dictionary.get(token);
+			if(id == null) {
+				id = firstSeen.size();
+				dictionary.put(token, id);
+				firstSeen.add(token);
+				if(id == freq.length) freq = Arrays.copyOf(freq, id * 2);
+			}
+			freq[id]++;
+			if(tokenCount == tokens.length) tokens = Arrays.copyOf(tokens, tokenCount * 2);
+			tokens[tokenCount++] = id;
+			start = end;
+		}
+		int[] lengths = HuffmanTree.buildCodeLengths(Arrays.copyOf(freq, firstSeen.size()));
+		// Renumber the symbols in canonical order: by code length, then by first occurrence
+		Integer[] order = new Integer[lengths.length];
+		for(int i = 0; i < order.length; i++) order[i] = i;
+		Arrays.sort(order, (a, b) -> lengths[a] != lengths[b] ? lengths[a] - lengths[b] : a - b);
+		int[] renumber = new int[order.length];
+		words = new ArrayList<>();
+		codeLengths = new int[order.length];
+		for(int i = 0; i < order.length; i++) {
+			renumber[order[i]] = i;
+			words.add(firstSeen.get(order[i]));
+			codeLengths[i] = lengths[order[i]];
+		}
+		for(String w: words) {
+			dictionary.put(w, renumber[dictionary.get(w)]);
+		}
+		symbols = new int[tokenCount];
+		for(int i = 0; i < tokenCount; i++) {
+			symbols[i] = renumber[tokens[i]];
+		}
+		codes = assignCodes(codeLengths);
+	}
+
+	/**
+	 * Custom constructor that rebuilds the code from a stored dictionary, e.g. for decompression.
+	 * @param words The words in canonical code order
+	 * @param codeLengths The code length of every word, in the same order
+	 */
+	public WordHuffmanTree(List<String> words, int[] codeLengths) {
+		this.words = words;
+		this.codeLengths = codeLengths;
+		this.dictionary = new HashMap<>();
+		for(int i = 0; i < words.size(); i++) {
+			dictionary.put(words.get(i), i);
+		}
+		this.codes = assignCodes(codeLengths);
+	}
+
+	/**
+	 * Assigns canonical codes: symbols in order, each code one more than the previous one, shifted left
+	 * whenever the code length grows.
+	 * @param codeLengths the code lengths in non-decreasing order
+	 * @return the code of every symbol
+	 */
+	private static long[] assignCodes(int[] codeLengths) {
+		long[] codes = new long[codeLengths.length];
+		long code = 0;
+		for(int i = 0; i < codeLengths.length; i++) {
+			if(i > 0) {
+				code = (code + 1) << (codeLengths[i] - codeLengths[i - 1]);
+			}
+			codes[i] = code;
+		}
+		return codes;
+	}
+}
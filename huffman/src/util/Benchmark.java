@@ -0,0 +1,368 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import util.CorpusGenerator.Distribution;
+
+/**
+ * Benchmark class to measure how compression and decompression scale<br>
+ * For every input size and distribution a synthetic file is generated with {@link util.CorpusGenerator}, then it is
+ * compressed into a {@link util.BlockArchive} and decompressed again for every combination of thread count and block
+ * size. Every run adds one line to a CSV file with the throughput, the time, the median and 99th percentile time of a
+ * single block and the peak heap and resident memory of compression and of decompression, so scaling curves can be
+ * plotted from it. Block times are measured on the thread that codes the block, so they show the latency of a block
+ * rather than the total time divided by the number of blocks. A warm-up run before the sweep lets the JIT compile the
+ * coding loops, so the first combination is not measured with interpreted code.<br>
+ * Input sizes (<code>input_mb</code>) are in MiB of characters, i.e. 1,048,576 characters per MiB; the file size in
+ * bytes (<code>input_bytes</code>) depends on how many bytes the distribution's characters take in UTF-8.
+ */
+public class Benchmark {
+
+	/**
+	 * the number of characters read before the blocks read so far are appended to the archive
+	 */
+	private static final int BATCH_CHARS = 64 * 1024 * 1024;
+
+	/**
+	 * the number of characters of the input compressed and decompressed to warm up before the sweep
+	 */
+	private static final int WARM_UP_CHARS = 8 * 1024 * 1024;
+
+	/**
+	 * the header of the CSV file
+	 */
+	private static final String CSV_HEADER = "distribution,input_mb,threads,block_chars,blocks,input_bytes,compressed_bytes,ratio,"
+			+ "compress_ms,compress_mb_per_s,compress_block_p50_us,compress_block_p99_us,"
+			+ "decompress_ms,decompress_mb_per_s,decompress_block_p50_us,decompress_block_p99_us,"
+			+ "compress_peak_heap_mb,decompress_peak_heap_mb,compress_peak_rss_mb,decompress_peak_rss_mb,verified";
+
+	/**
+	 * Reads the sweep parameters from the console and runs the benchmark
+	 * @param args arguments passed through the command line
+	 */
+	public static void main(String[] args) {
+		Scanner scanner = new Scanner(System.in);
+		System.out.println("Please enter the name of folder to store the generated, compressed and decompressed files: ");
+		String workPath = scanner.nextLine();
+		System.out.println("Please enter the input sizes in MiB of characters, separated by commas (default 1,10,100): ");
+		long[] sizes = parseLongs(scanner.nextLine(), "1,10,100");
+		System.out.println("Please enter the distributions, separated by commas (default ENGLISH,ZIPF,RANDOM,SINGLE): ");
+		String[] distributionNames = orDefault(scanner.nextLine(), "ENGLISH,ZIPF,RANDOM,SINGLE").split(",");
+		List<Distribution> distributions = new ArrayList<>();
+		for(String name: distributionNames) {
+			distributions.add(Distribution.valueOf(name.trim().toUpperCase()));
+		}
+		int cpus = Runtime.getRuntime().availableProcessors();
+		System.out.println("Please enter the thread counts, separated by commas (default 1,2,4," + cpus + "): ");
+		long[] threads = parseLongs(scanner.nextLine(), "1,2,4," + cpus);
+		System.out.println("Please enter the block sizes in KiB of characters (1,024 characters each), separated by commas (default 64,1024): ");
+		long[] blockSizes = parseLongs(scanner.nextLine(), "64,1024");
+		System.out.println("Please enter the name of the CSV file to store the results (default scaling.csv in the folder): ");
+		String csvName = orDefault(scanner.nextLine(), new File(workPath, "scaling.csv").getPath());
+		try {
+			runBenchmark(workPath, sizes, distributions, threads, blockSizes, csvName);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Runs every combination of input size, distribution, thread count and block size
+	 * @param workPath the folder for the generated, compressed and decompressed files
+	 * @param sizes the input sizes in MiB of characters
+	 * @param distributions the distributions of the generated inputs
+	 * @param threads the thread counts
+	 * @param blockSizes the block sizes in KiB of characters
+	 * @param csvName the name of the CSV file the results are appended to
+	 * @throws IOException if a file cannot be read or written
+	 */
+	private static void runBenchmark(String workPath, long[] sizes, List<Distribution> distributions, long[] threads,
+			long[] blockSizes, String csvName) throws IOException {
+		boolean newCsv = !new File(csvName).exists();
+		try (PrintWriter csv = new PrintWriter(new BufferedWriter(new FileWriter(csvName, true)))) {
+			if(newCsv) csv.println(CSV_HEADER);
+			warmUp(workPath, blockSizes);
+			for(Distribution distribution: distributions) {
+				for(long size: sizes) {
+					String textName = new File(workPath, distribution + "-" + size + "MB.txt").getPath();
+					String archiveName = new File(workPath, distribution + "-" + size + "MB.huf").getPath();
+					String retrievedName = new File(workPath, distribution + "-" + size + "MB-Retrieved.txt").getPath();
+					CorpusGenerator.generate(textName, size * 1024 * 1024, distribution, size);
+					long inputBytes = new File(textName).length();
+					for(long threadCount: threads) {
+						for(long blockSize: blockSizes) {
+							int blockChars = (int) (blockSize * 1024);
+							ForkJoinPool pool = new ForkJoinPool((int) threadCount);
+							try {
+								List<Long> compressTimes = Collections.synchronizedList(new ArrayList<>());
+								List<Long> decompressTimes = Collections.synchronizedList(new ArrayList<>());
+								resetPeaks();
+								long startCompressTime = System.nanoTime();
+								int blocks = compress(pool, textName, archiveName, blockChars, compressTimes);
+								long compressTime = System.nanoTime() - startCompressTime;
+								long compressHeap = peakHeapMb();
+								long compressRss = peakRssMb();
+								resetPeaks();
+								long startDecompressTime = System.nanoTime();
+								decompress(pool, archiveName, retrievedName, decompressTimes);
+								long decompressTime = System.nanoTime() - startDecompressTime;
+								long decompressHeap = peakHeapMb();
+								long decompressRss = peakRssMb();
+								long compressedBytes = new File(archiveName).length();
+								boolean verified = Files.mismatch(Paths.get(textName), Paths.get(retrievedName)) == -1;
+								String row = distribution + "," + size + "," + threadCount + "," + blockChars + "," + blocks + ","
+										+ inputBytes + "," + compressedBytes + "," + (double) compressedBytes / inputBytes + ","
+										+ compressTime / 1000000 + "," + throughput(inputBytes, compressTime) + ","
+										+ percentileUs(compressTimes, 50) + "," + percentileUs(compressTimes, 99) + ","
+										+ decompressTime / 1000000 + "," + throughput(inputBytes, decompressTime) + ","
+										+ percentileUs(decompressTimes, 50) + "," + percentileUs(decompressTimes, 99) + ","
+										+ compressHeap + "," + decompressHeap + "," + compressRss + "," + decompressRss + "," + verified;
+								csv.println(row);
+								csv.flush();
+								System.out.println(row);
+							} finally {
+								pool.shutdown();
+							}
+						}
+					}
+					// Generated inputs can be large, so only keep them for their own runs
+					new File(textName).delete();
+					new File(archiveName).delete();
+					new File(retrievedName).delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Compresses and decompresses a small generated input once for every block size and throws the results away,
+	 * so the JIT has compiled the coding loops before the first measured run
+	 * @param workPath the folder for the generated, compressed and decompressed files
+	 * @param blockSizes the block sizes in KiB of characters
+	 * @throws IOException if a file cannot be read or written
+	 */
+	private static void warmUp(String workPath, long[] blockSizes) throws IOException {
+		String textName = new File(workPath, "warm-up.txt").getPath();
+		String archiveName = new File(workPath, "warm-up.huf").getPath();
+		String retrievedName = new File(workPath, "warm-up-Retrieved.txt").getPath();
+		CorpusGenerator.generate(textName, WARM_UP_CHARS, Distribution.ENGLISH, 0);
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try {
+			for(long blockSize: blockSizes) {
+				compress(pool, textName, archiveName, (int) (blockSize * 1024), null);
+				decompress(pool, archiveName, retrievedName, null);
+			}
+		} finally {
+			pool.shutdown();
+			new File(textName).delete();
+			new File(archiveName).delete();
+			new File(retrievedName).delete();
+		}
+	}
+
+	/**
+	 * Compresses a text file into a new block archive, one block per <code>blockChars</code> characters.
+	 * The file is read and appended in batches, so inputs larger than memory can be compressed.
+	 * @param pool the pool the blocks are encoded in
+	 * @param textName the name of the text file
+	 * @param archiveName the name of the archive, replaced if it exists
+	 * @param blockChars the number of characters per block
+	 * @param blockTimes the list the time of every block is added to in nanoseconds, or null
+	 * @return the number of blocks written
+	 * @throws IOException if a file cannot be read or written
+	 */
+	private static int compress(ForkJoinPool pool, String textName, String archiveName, int blockChars,
+			List<Long> blockTimes) throws IOException {
+		new File(archiveName).delete();
+		BlockArchive archive = new BlockArchive(archiveName);
+		archive.setBlockTimes(blockTimes);
+		char[] buffer = new char[blockChars];
+		List<String> batch = new ArrayList<>();
+		long batchChars = 0;
+		try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(textName), StandardCharsets.UTF_8), 1 << 16)) {
+			while(true) {
+				// Fill a whole block unless the file ends
+				int n = 0;
+				int r;
+				while(n < blockChars && (r = in.read(buffer, n, blockChars - n)) > 0) {
+					n += r;
+				}
+				if(n > 0) {
+					batch.add(new String(buffer, 0, n));
+					batchChars += n;
+				}
+				if(n < blockChars || batchChars >= BATCH_CHARS) {
+					List<String> texts = batch;
+					// Parallel streams inside append run in the pool of the calling worker
+					runIn(pool, () -> archive.append(texts, false));
+					batch = new ArrayList<>();
+					batchChars = 0;
+				}
+				if(n < blockChars) break;
+			}
+		}
+		return archive.getBlockCount();
+	}
+
+	/**
+	 * Decompresses a block archive into a text file
+	 * @param pool the pool the blocks are decoded in
+	 * @param archiveName the name of the archive
+	 * @param retrievedName the name of the text file to write
+	 * @param blockTimes the list the time of every block is added to in nanoseconds, or null
+	 * @throws IOException if a file cannot be read or written
+	 */
+	private static void decompress(ForkJoinPool pool, String archiveName, String retrievedName, List<Long> blockTimes)
+			throws IOException {
+		BlockArchive archive = new BlockArchive(archiveName);
+		archive.setBlockTimes(blockTimes);
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(retrievedName), StandardCharsets.UTF_8), 1 << 16)) {
+			runIn(pool, () -> archive.decode(out));
+		}
+	}
+
+	/**
+	 * An action that may throw an IOException
+	 */
+	private interface IOAction {
+		void run() throws IOException;
+	}
+
+	/**
+	 * Runs an action in a pool and waits for it
+	 * @param pool the pool to run the action in
+	 * @param action the action to run
+	 * @throws IOException if the action throws it or is interrupted
+	 */
+	private static void runIn(ForkJoinPool pool, IOAction action) throws IOException {
+		try {
+			pool.submit(() -> {
+				action.run();
+				return null;
+			}).get();
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Collects garbage and resets the peak heap usage and, on Linux, the peak resident set size
+	 */
+	private static void resetPeaks() {
+		System.gc();
+		for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+		try {
+			Files.write(Paths.get("/proc/self/clear_refs"), "5".getBytes());
+		} catch (IOException | UnsupportedOperationException e) {
+			// Not on Linux: the peak resident set size then covers the whole process
+		}
+	}
+
+	/**
+	 * Returns the peak heap usage since the last {@link #resetPeaks()}
+	 * @return the peak heap usage in MB
+	 */
+	private static long peakHeapMb() {
+		long bytes = 0;
+		for(MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				bytes += pool.getPeakUsage().getUsed();
+			}
+		}
+		return bytes / (1024 * 1024);
+	}
+
+	/**
+	 * Returns the peak resident set size of the process since the last {@link #resetPeaks()}, read from /proc on Linux
+	 * @return the peak resident set size in MB, or -1 if it is not available
+	 */
+	private static long peakRssMb() {
+		try {
+			for(String line: Files.readAllLines(Paths.get("/proc/self/status"))) {
+				if(line.startsWith("VmHWM:")) {
+					return Long.parseLong(line.replaceAll("[^0-9]", "")) / 1024;
+				}
+			}
+		} catch (IOException | NumberFormatException e) {
+			// Not on Linux
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns a percentile of block times, by the nearest-rank method
+	 * @param nanos the time of every block in nanoseconds
+	 * @param percent the percentile, from 1 to 100
+	 * @return the percentile in microseconds, or 0 if there are no blocks
+	 */
+	private static long percentileUs(List<Long> nanos, int percent) {
+		if(nanos.isEmpty()) return 0;
+		List<Long> sorted = new ArrayList<>(nanos);
+		Collections.sort(sorted);
+		int rank = (int) Math.ceil(percent / 100.0 * sorted.size());
+		return sorted.get(Math.max(rank, 1) - 1) / 1000;
+	}
+
+	/**
+	 * Returns the throughput of a run
+	 * @param bytes the number of input bytes
+	 * @param nanos the time of the run in nanoseconds
+	 * @return the throughput in MB per second
+	 */
+	private static double throughput(long bytes, long nanos) {
+		return bytes / (1024.0 * 1024.0) / Math.max(1, nanos) * 1e9;
+	}
+
+	/**
+	 * Parses a comma separated list of numbers
+	 * @param line the list entered by the user
+	 * @param defaultValue the list to use when the line is empty
+	 * @return the numbers
+	 */
+	private static long[] parseLongs(String line, String defaultValue) {
+		String[] parts = orDefault(line, defaultValue).split(",");
+		long[] values = new long[parts.length];
+		for(int i = 0; i < parts.length; i++) {
+			values[i] = Long.parseLong(parts[i].trim());
+		}
+		return values;
+	}
+
+	/**
+	 * Returns a line entered by the user, or a default value when it is empty
+	 * @param line the line entered by the user
+	 * @param defaultValue the value to use when the line is empty
+	 * @return the line or the default value
+	 */
+	private static String orDefault(String line, String defaultValue) {
+		return line.trim().isEmpty() ? defaultValue : line.trim();
+	}
+}
@@ -0,0 +1,87 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * BitWriter Class<br>
+ * Packs Huffman codes into a byte array, least significant bit first, in the same bit order
+ * that {@link java.util.BitSet#toByteArray()} uses for the files written by {@link util.Compression}.
+ * Unlike a BitSet it keeps the exact number of bits written, so trailing zero bits are not lost.
+ * Contains the following elements:<br>
+ * <ul>
+ *    <li><b>buffer</b> - the bytes written so far</li>
+ *    <li><b>bitCount</b> - the number of bits written so far</li>
+ * </ul>
+ */
+class BitWriter {
+
+	/**
+	 * the bytes written so far
+	 */
+	private byte[] buffer;
+
+	/**
+	 * the number of bits written so far
+	 */
+	private long bitCount;
+
+	/**
+	 * Creates a BitWriter with room for the given number of bits before it has to grow
+	 * @param expectedBits an estimate of the number of bits that will be written
+	 */
+	BitWriter(long expectedBits) {
+		this.buffer = new byte[(int) Math.max(16, (expectedBits + 7) / 8)];
+	}
+
+	/**
+	 * Appends a code made of '0' and '1' characters, as stored in {@link impl.HuffmanTree#getCodeMap()}
+	 * @param code the code to append
+	 */
+	void write(String code) {
+		for(int i = 0; i < code.length(); i++) {
+			writeBit(code.charAt(i) == '1');
+		}
+	}
+
+	/**
+	 * Appends the lowest <code>length</code> bits of <code>bits</code>, most significant bit first
+	 * @param bits the code bits
+	 * @param length the number of bits to append
+	 */
+	void write(long bits, int length) {
+		for(int i = length - 1; i >= 0; i--) {
+			writeBit(((bits >>> i) & 1L) != 0);
+		}
+	}
+
+	/**
+	 * Appends a single bit
+	 * @param one true to append a 1, false to append a 0
+	 */
+	void writeBit(boolean one) {
+		int index = (int) (bitCount >>> 3);
+		if(index == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		if(one) {
+			buffer[index] |= (byte) (1 << (bitCount & 7));
+		}
+		bitCount++;
+	}
+
+	/**
+	 * Returns the number of bits written so far
+	 * @return the number of bits written so far
+	 */
+	long bitCount() {
+		return bitCount;
+	}
+
+	/**
+	 * Returns the written bits padded with zeros to a whole number of bytes
+	 * @return the written bits as a byte array
+	 */
+	byte[] toByteArray() {
+		return Arrays.copyOf(buffer, (int) ((bitCount + 7) >>> 3));
+	}
+}
@@ -0,0 +1,655 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import impl.HuffmanTree;
+import impl.Node;
+
+/**
+ * BlockArchive Class<br>
+ * A compressed file made of independently coded blocks, so that new text can be appended without
+ * re-compressing what is already stored. Every block is coded with one of the code tables kept in the
+ * archive; a block either gets a new table built from its own text or reuses an earlier one.<br>
+ * The file layout is:
+ * <ul>
+ *    <li><b>header</b> - the magic number followed by the offset of the newest index segment</li>
+ *    <li><b>tables and blocks</b> - code tables and block bit streams, in the order they were appended</li>
+ *    <li><b>index segments</b> - one per append: the offset of the previous segment, the offsets of the tables added
+ *    by the append and, for every block it added, its offset, table, character count and bit count</li>
+ * </ul>
+ * An append writes the new tables, blocks and a segment indexing only them after the end of the file, forces them
+ * to disk and only then overwrites the segment offset in the header. A reader therefore sees either the old or the
+ * new index, never a half written one, and the cost of an append depends on the new text only. Opening an archive
+ * follows the chain of segments; {@link #checkpoint()} folds the chain into a single segment. Writers in other
+ * processes are kept apart by a file lock, and archives in the same JVM on the same file by a shared lock object.<br>
+ * Contains the following elements:<br>
+ * <ul>
+ *    <li><b>fileName</b> - the name of the archive file</li>
+ *    <li><b>tables</b> - the character-code maps of all tables stored in the archive</li>
+ *    <li><b>blocks</b> - the index entries of all blocks stored in the archive</li>
+ * </ul>
+ */
+public class BlockArchive {
+
+	/**
+	 * the magic number at the start of every archive ("HUFB")
+	 */
+	static final int MAGIC = 0x48554642;
+
+	/**
+	 * the size of the header: the magic number and the index offset
+	 */
+	static final int HEADER_SIZE = 12;
+
+	/**
+	 * the name of the archive file
+	 */
+	private String fileName;
+
+	/**
+	 * the lock object of each archive file, by canonical path
+	 */
+	private static final ConcurrentHashMap<Path, Object> FILE_LOCKS = new ConcurrentHashMap<>();
+
+	/**
+	 * the lock object shared by all archives on this file, since a file lock is held by the whole JVM
+	 */
+	private Object fileLock;
+
+	/**
+	 * the offset of the newest index segment loaded, 0 before the first load
+	 */
+	private long indexOffset;
+
+	/**
+	 * the number of index segments in the chain loaded
+	 */
+	private int segmentCount;
+
+	/**
+	 * the character-code maps of all tables stored in the archive
+	 */
+	private List<HashMap<Character, String>> tables = new ArrayList<>();
+
+	/**
+	 * the offsets of all tables stored in the archive
+	 */
+	private List<Long> tableOffsets = new ArrayList<>();
+
+	/**
+	 * the index entries of all blocks stored in the archive
+	 */
+	private List<Block> blocks = new ArrayList<>();
+
+	/**
+	 * the list the coding time of every block is added to, or null when blocks are not timed
+	 */
+	private List<Long> blockTimes;
+
+	/**
+	 * Index entry of a single block
+	 */
+	static class Block {
+		long offset; // position of the first byte of the bit stream
+		int tableId; // table used to code the block
+		int charCount; // number of characters in the block
+		long bitCount; // number of bits in the bit stream
+
+		Block(long offset, int tableId, int charCount, long bitCount) {
+			this.offset = offset;
+			this.tableId = tableId;
+			this.charCount = charCount;
+			this.bitCount = bitCount;
+		}
+	}
+
+	/**
+	 * Opens an archive and loads its index. The file is created when it does not exist yet.
+	 * @param fileName the name of the archive file
+	 * @throws IOException if the file cannot be read or is not an archive
+	 */
+	public BlockArchive(String fileName) throws IOException {
+		this.fileName = fileName;
+		this.fileLock = FILE_LOCKS.computeIfAbsent(Paths.get(new File(fileName).getCanonicalPath()), p -> new Object());
+		synchronized(fileLock) {
+			try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+				FileLock lock = file.getChannel().lock();
+				try {
+					if(file.length() == 0) {
+						// Empty archive: header followed by a segment without tables and blocks
+						file.writeInt(MAGIC);
+						file.writeLong(HEADER_SIZE);
+						file.writeLong(0);
+						file.writeInt(0);
+						file.writeInt(0);
+						file.getFD().sync();
+					}
+					loadIndex(file);
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of blocks stored in the archive
+	 * @return the number of blocks
+	 */
+	public int getBlockCount() {
+		return blocks.size();
+	}
+
+	/**
+	 * Returns the number of code tables stored in the archive
+	 * @return the number of tables
+	 */
+	public int getTableCount() {
+		return tables.size();
+	}
+
+	/**
+	 * Returns the number of index segments read when the archive was opened or last appended to
+	 * @return the length of the segment chain
+	 */
+	public int getSegmentCount() {
+		return segmentCount;
+	}
+
+	/**
+	 * Makes appends add the time each block took to build its tree and encode, and decodes the time each block
+	 * took to decode, to a list. The times are measured on the thread that codes the block, so unlike the total
+	 * time divided by the number of blocks they do not shrink when more threads are used.
+	 * @param blockTimes a thread-safe list the times are added to in nanoseconds, or null to stop timing
+	 */
+	void setBlockTimes(List<Long> blockTimes) {
+		this.blockTimes = blockTimes;
+	}
+
+	/**
+	 * Appends the content of a text file as one new block
+	 * @param textFileName the name of the text file to append
+	 * @param reuseTable whether an existing table may be used when it codes the text in fewer bytes than a new one
+	 * @throws IOException if the archive cannot be written
+	 */
+	public void appendFile(String textFileName, boolean reuseTable) throws IOException {
+		append(Compression.readFile(textFileName), reuseTable);
+	}
+
+	/**
+	 * Appends a text split by {@link util.BlockSplitter} into blocks that start where its character distribution changes
+	 * @param text the text to append
+	 * @throws IOException if the archive cannot be written
+	 */
+	public void appendSplit(String text) throws IOException {
+		append(BlockSplitter.split(text), true);
+	}
+
+	/**
+	 * Appends a text as one new block
+	 * @param text the text to append
+	 * @param reuseTable whether an existing table may be used when it codes the text in fewer bytes than a new one
+	 * @throws IOException if the archive cannot be written
+	 */
+	public void append(String text, boolean reuseTable) throws IOException {
+		List<String> texts = new ArrayList<>();
+		texts.add(text);
+		append(texts, reuseTable);
+	}
+
+	/**
+	 * Appends several texts, one block each, and publishes them with a single index update.
+	 * The Huffman trees and bit streams of the blocks are built in parallel; only the choice of tables
+	 * and the writes are sequential.
+	 * @param texts the texts to append
+	 * @param reuseTable whether an existing table may be used when it codes a text in fewer bytes than a new one
+	 * @throws IOException if the archive cannot be written
+	 */
+	public void append(List<String> texts, boolean reuseTable) throws IOException {
+		List<String> nonEmpty = new ArrayList<>();
+		for(String text: texts) {
+			if(!text.isEmpty()) nonEmpty.add(text);
+		}
+		// Build the tree of every block in parallel
+		long[] nanos = new long[nonEmpty.size()];
+		List<HuffmanTree> trees = IntStream.range(0, nonEmpty.size()).parallel().mapToObj(b -> {
+			long startTime = System.nanoTime();
+			HuffmanTree tree = new HuffmanTree(nonEmpty.get(b));
+			nanos[b] = System.nanoTime() - startTime;
+			return tree;
+		}).collect(Collectors.toList());
+		synchronized(fileLock) {
+			try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+				FileLock lock = file.getChannel().lock();
+				try {
+					// Another writer may have appended since the index was loaded
+					loadIndex(file);
+					List<HashMap<Character, String>> newTables = new ArrayList<>(tables);
+					List<Long> newTableOffsets = new ArrayList<>(tableOffsets);
+					List<Block> newBlocks = new ArrayList<>(blocks);
+					int firstTable = newTables.size();
+					int firstBlock = newBlocks.size();
+					// Choose the table of every block in order, since a block may reuse the new table of an earlier one
+					int[] tableIds = new int[nonEmpty.size()];
+					for(int b = 0; b < nonEmpty.size(); b++) {
+						HashMap<Character, Integer> freq = trees.get(b).getFrequencyMap();
+						HashMap<Character, String> newTable = tableOf(trees.get(b));
+						int tableId = -1;
+						long bestBits = codedBits(freq, newTable) + tableBytes(newTable) * 8L;
+						if(reuseTable) {
+							for(int i = 0; i < newTables.size(); i++) {
+								long bits = codedBits(freq, newTables.get(i));
+								if(bits >= 0 && bits < bestBits) {
+									bestBits = bits;
+									tableId = i;
+								}
+							}
+						}
+						if(tableId < 0) {
+							tableId = newTables.size();
+							newTables.add(newTable);
+						}
+						tableIds[b] = tableId;
+					}
+					// Encode every block in parallel
+					List<BitWriter> encoded = IntStream.range(0, nonEmpty.size()).parallel().mapToObj(b -> {
+						long startTime = System.nanoTime();
+						BitWriter bits = encode(nonEmpty.get(b), newTables.get(tableIds[b]));
+						nanos[b] += System.nanoTime() - startTime;
+						return bits;
+					}).collect(Collectors.toList());
+					long position = file.length();
+					file.seek(position);
+					for(int b = 0; b < nonEmpty.size(); b++) {
+						if(tableIds[b] == newTableOffsets.size()) {
+							byte[] tableBytes = writeTable(newTables.get(tableIds[b]));
+							file.write(tableBytes);
+							newTableOffsets.add(position);
+							position += tableBytes.length;
+						}
+						byte[] payload = encoded.get(b).toByteArray();
+						file.write(payload);
+						newBlocks.add(new Block(position, tableIds[b], nonEmpty.get(b).length(), encoded.get(b).bitCount()));
+						position += payload.length;
+					}
+					// Index only the new tables and blocks, linked to the previous segment
+					file.write(writeSegment(indexOffset, newTableOffsets.subList(firstTable, newTableOffsets.size()),
+							newBlocks.subList(firstBlock, newBlocks.size())));
+					publish(file, position);
+					this.tables = newTables;
+					this.tableOffsets = newTableOffsets;
+					this.blocks = newBlocks;
+					this.segmentCount++;
+					if(blockTimes != null) {
+						for(long n: nanos) blockTimes.add(n);
+					}
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Folds the chain of index segments into a single segment holding all tables and blocks, so the archive
+	 * opens with one read. The old segments stay in the file as unused bytes; the data is not copied.
+	 * @throws IOException if the archive cannot be written
+	 */
+	public void checkpoint() throws IOException {
+		synchronized(fileLock) {
+			try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+				FileLock lock = file.getChannel().lock();
+				try {
+					loadIndex(file);
+					if(segmentCount <= 1) return;
+					long position = file.length();
+					file.seek(position);
+					file.write(writeSegment(0, tableOffsets, blocks));
+					publish(file, position);
+					this.segmentCount = 1;
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Makes everything written so far durable, then switches the header to a new index segment
+	 * @param file the open archive file
+	 * @param segmentOffset the offset of the new segment
+	 * @throws IOException if the archive cannot be written
+	 */
+	private void publish(RandomAccessFile file, long segmentOffset) throws IOException {
+		file.getFD().sync();
+		file.seek(4);
+		file.writeLong(segmentOffset);
+		file.getFD().sync();
+		this.indexOffset = segmentOffset;
+	}
+
+	/**
+	 * Decodes all blocks of the archive in order
+	 * @return the text stored in the archive
+	 * @throws IOException if the archive cannot be read
+	 */
+	public String decode() throws IOException {
+		StringWriter out = new StringWriter();
+		decode(out);
+		return out.toString();
+	}
+
+	/**
+	 * Decodes all blocks of the archive in order and writes the text to a Writer. Blocks are independent, so
+	 * groups of blocks are decoded in parallel and written in order; only one group is held in memory at a time.
+	 * @param out the Writer the text is written to
+	 * @throws IOException if the archive cannot be read or the text cannot be written
+	 */
+	public void decode(Writer out) throws IOException {
+		// Parallel streams run in the pool of the calling thread when it is a pool worker
+		ForkJoinPool pool = ForkJoinTask.getPool();
+		int group = 4 * (pool != null ? pool.getParallelism() : ForkJoinPool.getCommonPoolParallelism());
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			for(int start = 0; start < blocks.size(); start += group) {
+				List<String> texts = IntStream.range(start, Math.min(blocks.size(), start + group)).parallel().mapToObj(i -> {
+					try {
+						long startTime = System.nanoTime();
+						String text = decodeBlock(channel, i);
+						if(blockTimes != null) blockTimes.add(System.nanoTime() - startTime);
+						return text;
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}).collect(Collectors.toList());
+				for(String text: texts) {
+					out.write(text);
+				}
+			}
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Decodes a single block
+	 * @param channel the open archive file, read with positional reads so several blocks can be read at once
+	 * @param blockId the position of the block in the index
+	 * @return the text of the block
+	 * @throws IOException if the archive cannot be read
+	 */
+	private String decodeBlock(FileChannel channel, int blockId) throws IOException {
+		Block block = blocks.get(blockId);
+		byte[] payload = new byte[(int) ((block.bitCount + 7) >>> 3)];
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, block.offset + buffer.position()) < 0) {
+				throw new EOFException("Block " + blockId + " is truncated");
+			}
+		}
+		Node root = Decompression.buildTree(decodeMapOf(tables.get(block.tableId)));
+		StringBuilder sb = new StringBuilder(block.charCount);
+		Node currNode = root;
+		for(long i = 0; i < block.bitCount; i++) {
+			if((payload[(int) (i >>> 3)] & (1 << (i & 7))) == 0) {
+				currNode = currNode.getLeftNode();
+			}else {
+				currNode = currNode.getRightNode();
+			}
+			// Leaves have no children; their character may be any char, the null character included
+			if(currNode.getLeftNode() == null && currNode.getRightNode() == null) {
+				sb.append(currNode.getText());
+				currNode = root;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads the header and the index segments added since the last load. The chain is followed from the newest
+	 * segment back to the newest one already loaded; if it is not found, e.g. after another process made a
+	 * {@link #checkpoint()}, the whole chain is read again.
+	 * @param file the open archive file
+	 * @throws IOException if the file is not an archive or cannot be read
+	 */
+	private void loadIndex(RandomAccessFile file) throws IOException {
+		file.seek(0);
+		if(file.readInt() != MAGIC) {
+			throw new IOException(fileName + " is not a block archive");
+		}
+		long head = file.readLong();
+		List<Long> chain = new ArrayList<>();
+		long segment = head;
+		while(segment != 0 && segment != indexOffset) {
+			chain.add(segment);
+			file.seek(segment);
+			segment = file.readLong();
+		}
+		List<HashMap<Character, String>> newTables = new ArrayList<>(tables);
+		List<Long> newTableOffsets = new ArrayList<>(tableOffsets);
+		List<Block> newBlocks = new ArrayList<>(blocks);
+		int newSegmentCount = segmentCount;
+		if(segment != indexOffset) {
+			// The loaded segments are no longer part of the chain
+			newTables.clear();
+			newTableOffsets.clear();
+			newBlocks.clear();
+			newSegmentCount = 0;
+		}
+		// Apply the segments oldest first
+		for(int c = chain.size() - 1; c >= 0; c--) {
+			file.seek(chain.get(c) + 8);
+			int tableCount = file.readInt();
+			int firstTable = newTableOffsets.size();
+			for(int i = 0; i < tableCount; i++) {
+				newTableOffsets.add(file.readLong());
+			}
+			int blockCount = file.readInt();
+			for(int i = 0; i < blockCount; i++) {
+				newBlocks.add(new Block(file.readLong(), file.readInt(), file.readInt(), file.readLong()));
+			}
+			for(int i = firstTable; i < newTableOffsets.size(); i++) {
+				file.seek(newTableOffsets.get(i));
+				newTables.add(readTable(file));
+			}
+			newSegmentCount++;
+		}
+		this.tables = newTables;
+		this.tableOffsets = newTableOffsets;
+		this.blocks = newBlocks;
+		this.segmentCount = newSegmentCount;
+		this.indexOffset = head;
+	}
+
+	/**
+	 * Returns the character-code map of a Huffman tree. A tree with a single character gets the code "0"
+	 * for it, because the empty code of a lone root cannot be decoded.
+	 * @param tree the Huffman tree built from the text
+	 * @return the character-code map to store in the archive
+	 */
+	static HashMap<Character, String> tableOf(HuffmanTree tree) {
+		HashMap<Character, String> table = new HashMap<>(tree.getCodeMap());
+		if(table.size() == 1) {
+			table.replaceAll((c, code) -> "0");
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the number of bits a text with the given character frequencies takes when coded with a table
+	 * @param freq the frequency of each character of the text
+	 * @param table the character-code map
+	 * @return the number of bits, or -1 if the table has no code for one of the characters
+	 */
+	static long codedBits(Map<Character, Integer> freq, Map<Character, String> table) {
+		long bits = 0;
+		for(Map.Entry<Character, Integer> e: freq.entrySet()) {
+			String code = table.get(e.getKey());
+			if(code == null) return -1;
+			bits += (long) code.length() * e.getValue();
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the number of bytes a table takes in the archive
+	 * @param table the character-code map
+	 * @return the size of the stored table in bytes
+	 */
+	static int tableBytes(Map<Character, String> table) {
+		int size = 4;
+		for(String code: table.values()) {
+			size += 2 + 2 + code.length(); // character, code length prefix and code
+		}
+		return size;
+	}
+
+	/**
+	 * Codes a text with a table
+	 * @param text the text to code
+	 * @param table the character-code map
+	 * @return the written bits
+	 */
+	static BitWriter encode(String text, Map<Character, String> table) {
+		BitWriter bits = new BitWriter(text.length() * 5L);
+		for(int i = 0; i < text.length(); i++) {
+			bits.write(table.get(text.charAt(i)));
+		}
+		return bits;
+	}
+
+	/**
+	 * Inverts a character-code map into the code-character map used by {@link util.Decompression#buildTree(HashMap)}
+	 * @param table the character-code map
+	 * @return the code-character map
+	 */
+	static HashMap<String, Character> decodeMapOf(Map<Character, String> table) {
+		HashMap<String, Character> codemap = new HashMap<>();
+		for(Map.Entry<Character, String> e: table.entrySet()) {
+			codemap.put(e.getValue(), e.getKey());
+		}
+		return codemap;
+	}
+
+	/**
+	 * Serialises a table: the number of entries followed by each character and its code
+	 * @param table the character-code map
+	 * @return the stored table
+	 * @throws IOException never, the table is written to memory
+	 */
+	private static byte[] writeTable(Map<Character, String> table) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(tableBytes(table));
+		DataOutputStream os = new DataOutputStream(bytes);
+		os.writeInt(table.size());
+		for(Map.Entry<Character, String> e: table.entrySet()) {
+			os.writeChar(e.getKey());
+			os.writeUTF(e.getValue());
+		}
+		os.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads a table written by {@link #writeTable(Map)}
+	 * @param file the archive file positioned at the table
+	 * @return the character-code map
+	 * @throws IOException if the table cannot be read
+	 */
+	private static HashMap<Character, String> readTable(RandomAccessFile file) throws IOException {
+		int size = file.readInt();
+		HashMap<Character, String> table = new HashMap<>();
+		for(int i = 0; i < size; i++) {
+			char c = file.readChar();
+			table.put(c, file.readUTF());
+		}
+		return table;
+	}
+
+	/**
+	 * Serialises an index segment
+	 * @param previous the offset of the previous segment, 0 if there is none
+	 * @param tableOffsets the offsets of the tables the segment adds
+	 * @param blocks the index entries of the blocks the segment adds
+	 * @return the stored segment
+	 * @throws IOException never, the segment is written to memory
+	 */
+	private static byte[] writeSegment(long previous, List<Long> tableOffsets, List<Block> blocks) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + tableOffsets.size() * 8 + blocks.size() * 24);
+		DataOutputStream os = new DataOutputStream(bytes);
+		os.writeLong(previous);
+		os.writeInt(tableOffsets.size());
+		for(long offset: tableOffsets) {
+			os.writeLong(offset);
+		}
+		os.writeInt(blocks.size());
+		for(Block block: blocks) {
+			os.writeLong(block.offset);
+			os.writeInt(block.tableId);
+			os.writeInt(block.charCount);
+			os.writeLong(block.bitCount);
+		}
+		os.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Appends a text file to an archive and writes the whole content of the archive to another text file
+	 * @param args arguments passed through the command line
+	 */
+	public static void main(String[] args) {
+		Scanner scanner = new Scanner(System.in);
+		System.out.println("Please enter the name of the archive to append to: ");
+		String archiveName = scanner.nextLine();
+		System.out.println("Please enter the name of the file to be appended: ");
+		String readFileName = scanner.nextLine();
+		System.out.println("Please enter the name of the file to store the decompressed archive: ");
+		String writeFileName = scanner.nextLine();
+		System.out.println("Split the file into blocks where its statistics change? (y/n) ");
+		boolean split = scanner.nextLine().trim().equalsIgnoreCase("y");
+		try {
+			long startAppendTime = System.currentTimeMillis();
+			BlockArchive archive = new BlockArchive(archiveName);
+			if(split) {
+				archive.appendSplit(Compression.readFile(readFileName));
+			}else {
+				archive.appendFile(readFileName, true);
+			}
+			long endAppendTime = System.currentTimeMillis();
+			System.out.println("Append Time: " + (endAppendTime - startAppendTime) + "ms, Blocks: " + archive.getBlockCount()
+					+ ", Tables: " + archive.getTableCount() + ", Archive Size: " + new File(archiveName).length()/1024 + "Kb");
+			long startDecompressTime = System.currentTimeMillis();
+			try (BufferedWriter out = new BufferedWriter(new FileWriter(writeFileName))) {
+				archive.decode(out);
+			}
+			long endDecompressTime = System.currentTimeMillis();
+			System.out.println("Decompress Time: " + (endDecompressTime - startDecompressTime) + "ms");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
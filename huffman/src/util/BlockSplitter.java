@@ -0,0 +1,213 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * BlockSplitter Class<br>
+ * Splits a text into blocks for {@link util.BlockArchive} where the character distribution changes, e.g. where a
+ * document moves from prose to a table. Candidate boundaries are placed every <code>step</code> characters. For every
+ * candidate the splitter keeps the character counts of the text before it (prefix histograms), so the counts of any
+ * range are the difference of two prefixes and the coded size of a range can be estimated without scanning the text
+ * again.<br>
+ * The estimate of a block is its entropy in bits plus the size of its code table and index entry. A range is split at
+ * the candidate that gives the smallest estimate for the two halves, as long as that is smaller than the estimate of
+ * the whole range; the halves are then split in the same way. The candidates of a range are evaluated in parallel.<br>
+ * A range longer than <code>maxBlock</code> is split even when that does not make it smaller, so that the blocks of a
+ * long, uniform text can still be decoded in parallel. Such a split takes the cheapest candidate in the middle half of
+ * the range, which keeps the halves balanced.<br>
+ * Contains the following elements:<br>
+ * <ul>
+ *    <li><b>text</b> - the text to split</li>
+ *    <li><b>step</b> - the distance between candidate boundaries in characters</li>
+ *    <li><b>maxBlock</b> - the length in characters above which a range is always split</li>
+ *    <li><b>prefix</b> - the character counts of the text before each candidate boundary</li>
+ * </ul>
+ */
+public class BlockSplitter {
+
+	/**
+	 * the distance between candidate boundaries used when none is given
+	 */
+	public static final int DEFAULT_STEP = 4096;
+
+	/**
+	 * the length in characters above which a range is always split, used when none is given
+	 */
+	public static final int DEFAULT_MAX_BLOCK = 1024 * 1024;
+
+	/**
+	 * the largest number of candidate boundaries; the step is increased for longer texts to stay below it
+	 */
+	private static final int MAX_CANDIDATES = 16 * 1024;
+
+	/**
+	 * the largest number of counts kept in all prefix histograms together, which bounds the candidates of texts with large alphabets
+	 */
+	private static final int MAX_PREFIX_COUNTS = 16 * 1024 * 1024;
+
+	/**
+	 * the text to split
+	 */
+	private String text;
+
+	/**
+	 * the distance between candidate boundaries in characters
+	 */
+	private int step;
+
+	/**
+	 * the length in characters above which a range is always split
+	 */
+	private int maxBlock;
+
+	/**
+	 * the number of different characters in the text
+	 */
+	private int alphabetSize;
+
+	/**
+	 * prefix[k][a] is the number of occurrences of the a-th character of the alphabet before candidate k
+	 */
+	private int[][] prefix;
+
+	/**
+	 * Builds the prefix histograms of a text, with blocks of at most {@link #DEFAULT_MAX_BLOCK} characters
+	 * @param text the text to split
+	 * @param step the distance between candidate boundaries in characters, i.e. the smallest block
+	 */
+	public BlockSplitter(String text, int step) {
+		this(text, step, DEFAULT_MAX_BLOCK);
+	}
+
+	/**
+	 * Builds the prefix histograms of a text
+	 * @param text the text to split
+	 * @param step the distance between candidate boundaries in characters, i.e. the smallest block
+	 * @param maxBlock the length in characters above which a range is always split; blocks may be up to one
+	 * step longer when the step has to be increased for long texts
+	 */
+	public BlockSplitter(String text, int step, int maxBlock) {
+		this.text = text;
+		this.maxBlock = maxBlock;
+		// Map the characters of the text to dense indices so every histogram only has one entry per used character
+		int[] index = new int[Character.MAX_VALUE + 1];
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(index[c] == 0) {
+				index[c] = ++alphabetSize;
+			}
+		}
+		int maxCandidates = Math.min(MAX_CANDIDATES, MAX_PREFIX_COUNTS / Math.max(alphabetSize, 1));
+		this.step = Math.max(step, text.length() / maxCandidates + 1);
+		int candidates = (text.length() + this.step - 1) / this.step;
+		prefix = new int[candidates + 1][alphabetSize];
+		for(int k = 0; k < candidates; k++) {
+			int[] counts = prefix[k + 1];
+			System.arraycopy(prefix[k], 0, counts, 0, alphabetSize);
+			int end = Math.min(text.length(), (k + 1) * this.step);
+			for(int i = k * this.step; i < end; i++) {
+				counts[index[text.charAt(i)] - 1]++;
+			}
+		}
+	}
+
+	/**
+	 * Splits a text with the default candidate step
+	 * @param text the text to split
+	 * @return the blocks, in order
+	 */
+	public static List<String> split(String text) {
+		return new BlockSplitter(text, DEFAULT_STEP).split();
+	}
+
+	/**
+	 * Splits the text where the character distribution changes
+	 * @return the blocks, in order
+	 */
+	public List<String> split() {
+		List<Integer> boundaries = new ArrayList<>();
+		boundaries.add(0);
+		splitRange(0, prefix.length - 1, boundaries);
+		boundaries.add(text.length());
+		List<String> blocks = new ArrayList<>();
+		for(int i = 0; i + 1 < boundaries.size(); i++) {
+			if(boundaries.get(i) < boundaries.get(i + 1)) {
+				blocks.add(text.substring(boundaries.get(i), boundaries.get(i + 1)));
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * Splits the range between two candidates and adds the inner boundaries it chooses, in order
+	 * @param from the candidate at the start of the range
+	 * @param to the candidate at the end of the range
+	 * @param boundaries the list the character positions of the chosen boundaries are added to
+	 */
+	private void splitRange(int from, int to, List<Integer> boundaries) {
+		if(to - from < 2) return;
+		double whole = estimate(from, to);
+		// Evaluate every candidate inside the range in parallel and keep the cheapest
+		double[] costs = new double[to - from];
+		IntStream.range(from + 1, to).parallel().forEach(k -> costs[k - from] = estimate(from, k) + estimate(k, to));
+		int best = cheapest(costs, from, from + 1, to - 1);
+		if(costs[best - from] >= whole) {
+			long length = Math.min((long) to * step, text.length()) - (long) from * step;
+			if(length <= maxBlock) return;
+			// Too long to keep in one block: split anyway, near the middle so the recursion stays shallow
+			int quarter = Math.max(1, (to - from) / 4);
+			best = cheapest(costs, from, from + quarter, to - quarter);
+		}
+		splitRange(from, best, boundaries);
+		boundaries.add(best * step);
+		splitRange(best, to, boundaries);
+	}
+
+	/**
+	 * Returns the cheapest candidate of an interval
+	 * @param costs the estimates of splitting the range at each candidate, indexed from its start
+	 * @param from the candidate at the start of the range
+	 * @param first the first candidate of the interval
+	 * @param last the last candidate of the interval
+	 * @return the candidate with the smallest estimate, the first one on ties
+	 */
+	private static int cheapest(double[] costs, int from, int first, int last) {
+		int best = first;
+		for(int k = first + 1; k <= last; k++) {
+			if(costs[k - from] < costs[best - from]) best = k;
+		}
+		return best;
+	}
+
+	/**
+	 * Estimates the number of bits of the block between two candidates in a {@link util.BlockArchive}: the entropy of
+	 * its characters, but at least one bit per character since every Huffman code has at least one bit, plus its own
+	 * code table, table offset and index entry
+	 * @param from the candidate at the start of the block
+	 * @param to the candidate at the end of the block
+	 * @return the estimated size in bits
+	 */
+	private double estimate(int from, int to) {
+		int[] start = prefix[from];
+		int[] end = prefix[to];
+		long total = 0;
+		for(int a = 0; a < alphabetSize; a++) {
+			total += end[a] - start[a];
+		}
+		double bits = 0;
+		int distinct = 0;
+		for(int a = 0; a < alphabetSize; a++) {
+			int count = end[a] - start[a];
+			if(count > 0) {
+				bits += count * Math.log((double) total / count);
+				distinct++;
+			}
+		}
+		bits = Math.max(bits / Math.log(2), total);
+		// Table: count field plus character, length prefix and a code of about log2(distinct) bits per entry
+		double codeLength = Math.ceil(Math.log(Math.max(distinct, 2)) / Math.log(2));
+		return bits + 8 * (4 + distinct * (4 + codeLength) + 8 + 24);
+	}
+}
@@ -0,0 +1,206 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import impl.HuffmanTree;
+import impl.Node;
+
+/**
+ * ChannelDecoder Class<br>
+ * Decodes the frames written by {@link util.ChannelEncoder} from a non-blocking channel or from buffers handed
+ * over by the caller. Bytes may arrive in pieces of any size: the decoder keeps its position inside the length
+ * field, the message and the Huffman tree between calls, so a code split across two reads is resumed where it
+ * stopped.<br>
+ * Contains the following elements:<br>
+ * <ul>
+ *    <li><b>treeRoot</b> - the root node of the Huffman tree built from the code-character map</li>
+ *    <li><b>currNode</b> - the tree node reached by the bits of the current, unfinished code</li>
+ *    <li><b>message</b> - the characters of the current, unfinished message</li>
+ * </ul>
+ */
+public class ChannelDecoder {
+
+	/**
+	 * the size of the buffer used by {@link #read(ReadableByteChannel)} when none is given
+	 */
+	public static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * the root node of the Huffman tree built from the code-character map
+	 */
+	private Node treeRoot;
+
+	/**
+	 * the tree node reached by the bits of the current, unfinished code
+	 */
+	private Node currNode;
+
+	/**
+	 * the characters of the current, unfinished message
+	 */
+	private StringBuilder message = new StringBuilder();
+
+	/**
+	 * number of bytes of the length field read so far
+	 */
+	private int lengthBytes;
+
+	/**
+	 * the number of characters of the current message, once its length field is complete
+	 */
+	private int length;
+
+	/**
+	 * buffer used by {@link #read(ReadableByteChannel)}
+	 */
+	private ByteBuffer readBuffer;
+
+	/**
+	 * whether the channel has reached the end of the stream
+	 */
+	private boolean endOfStream;
+
+	/**
+	 * Creates a decoder for frames coded with the codes of a Huffman tree, as written by
+	 * {@link util.ChannelEncoder#ChannelEncoder(HuffmanTree)}
+	 * @param tree the Huffman tree whose codes are used
+	 */
+	public ChannelDecoder(HuffmanTree tree) {
+		this(tree, DEFAULT_READ_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a decoder for frames coded with the codes of a Huffman tree that reads a channel a few bytes at a time
+	 * @param tree the Huffman tree whose codes are used
+	 * @param readBufferSize the number of bytes {@link #read(ReadableByteChannel)} reads at a time
+	 */
+	public ChannelDecoder(HuffmanTree tree, int readBufferSize) {
+		this(BlockArchive.decodeMapOf(BlockArchive.tableOf(tree)), readBufferSize);
+	}
+
+	/**
+	 * Creates a decoder for frames coded with the given codes. The empty code of a tree with a single
+	 * character is read as "0", the code {@link util.ChannelEncoder} writes for it.
+	 * @param codemap the code-character map, as in {@link util.Compression#codeToChar}
+	 */
+	public ChannelDecoder(HashMap<String, Character> codemap) {
+		this(codemap, DEFAULT_READ_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a decoder for frames coded with the given codes that reads a channel a few bytes at a time
+	 * @param codemap the code-character map, as in {@link util.Compression#codeToChar}
+	 * @param readBufferSize the number of bytes {@link #read(ReadableByteChannel)} reads at a time
+	 */
+	public ChannelDecoder(HashMap<String, Character> codemap, int readBufferSize) {
+		if(codemap.size() == 1 && codemap.containsKey("")) {
+			HashMap<String, Character> single = new HashMap<>();
+			single.put("0", codemap.get(""));
+			codemap = single;
+		}
+		this.treeRoot = Decompression.buildTree(codemap);
+		this.currNode = treeRoot;
+		this.readBuffer = ByteBuffer.allocate(readBufferSize);
+	}
+
+	/**
+	 * Reads the bytes that are available on the channel without blocking and decodes them
+	 * @param channel the channel to read from
+	 * @return the messages completed by the bytes read, possibly none
+	 * @throws IOException if the channel cannot be read, carries a corrupt frame or ends in the middle of a message
+	 */
+	public List<String> read(ReadableByteChannel channel) throws IOException {
+		List<String> messages = new ArrayList<>();
+		int n;
+		while((n = channel.read(readBuffer)) > 0) {
+			readBuffer.flip();
+			try {
+				messages.addAll(decode(readBuffer));
+			} finally {
+				readBuffer.clear();
+			}
+		}
+		if(n < 0) {
+			endOfStream = true;
+			if(lengthBytes > 0) {
+				throw new IOException("Stream ended in the middle of a message");
+			}
+		}
+		return messages;
+	}
+
+	/**
+	 * Returns whether the channel given to {@link #read(ReadableByteChannel)} has reached the end of the stream
+	 * @return true once the peer has closed its side of the channel
+	 */
+	public boolean isEndOfStream() {
+		return endOfStream;
+	}
+
+	/**
+	 * Decodes all remaining bytes of a buffer
+	 * @param in the buffer to decode; it is consumed completely
+	 * @return the messages completed by the bytes of the buffer, possibly none
+	 * @throws IOException if the bytes do not form valid frames for the codes of this decoder
+	 */
+	public List<String> decode(ByteBuffer in) throws IOException {
+		List<String> messages = new ArrayList<>();
+		while(in.hasRemaining()) {
+			if(lengthBytes < 4) {
+				// Length field, possibly split across buffers
+				length = (length << 8) | (in.get() & 0xff);
+				lengthBytes++;
+				if(lengthBytes == 4 && length < 0) {
+					finishMessage();
+					throw new IOException("Corrupt frame: negative message length");
+				}
+				if(lengthBytes == 4 && length == 0) {
+					messages.add(finishMessage());
+				}
+				continue;
+			}
+			int b = in.get() & 0xff;
+			for(int i = 0; i < 8; i++) {
+				if((b & (1 << i)) == 0) {
+					currNode = currNode.getLeftNode();
+				}else {
+					currNode = currNode.getRightNode();
+				}
+				if(currNode == null) {
+					// No code starts with these bits
+					finishMessage();
+					throw new IOException("Corrupt frame: invalid code");
+				}
+				// Leaves have no children; their character may be any char, the null character included
+				if(currNode.getLeftNode() == null && currNode.getRightNode() == null) {
+					message.append(currNode.getText());
+					currNode = treeRoot;
+					if(message.length() == length) {
+						// The rest of the byte is padding
+						messages.add(finishMessage());
+						break;
+					}
+				}
+			}
+		}
+		return messages;
+	}
+
+	/**
+	 * Returns the current message and resets the state for the next frame
+	 * @return the completed message
+	 */
+	private String finishMessage() {
+		String s = message.toString();
+		message.setLength(0);
+		lengthBytes = 0;
+		length = 0;
+		currNode = treeRoot;
+		return s;
+	}
+}
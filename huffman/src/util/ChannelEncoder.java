@@ -0,0 +1,129 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+
+import impl.HuffmanTree;
+
+/**
+ * ChannelEncoder Class<br>
+ * Huffman codes messages for a non-blocking channel, such as a {@link java.nio.channels.SocketChannel} driven by a
+ * {@link java.nio.channels.Selector}. Every message is written as a frame:
+ * <ul>
+ *    <li><b>length</b> - the number of characters in the message, as a 4 byte big-endian int</li>
+ *    <li><b>payload</b> - the Huffman codes of the characters, least significant bit first, padded to a whole byte</li>
+ * </ul>
+ * The padding flushes the bit stream at every message boundary, so a message can be decoded as soon as its
+ * last byte arrives. Frames are queued by {@link #write(String)} and drained by {@link #flush(WritableByteChannel)}
+ * or {@link #encode(ByteBuffer)} as far as the channel or buffer accepts them.<br>
+ * Contains the following elements:<br>
+ * <ul>
+ *    <li><b>codeMap</b> - the character-code map used to code the messages</li>
+ *    <li><b>pending</b> - the coded bytes that have not been written yet</li>
+ * </ul>
+ */
+public class ChannelEncoder {
+
+	/**
+	 * the character-code map used to code the messages
+	 */
+	private HashMap<Character, String> codeMap;
+
+	/**
+	 * the coded bytes that have not been written yet, ready to be read from
+	 */
+	private ByteBuffer pending = ByteBuffer.allocate(0);
+
+	/**
+	 * Creates an encoder that codes messages with the codes of a Huffman tree
+	 * @param tree the Huffman tree whose codes are used; the peer decodes with its decode map
+	 */
+	public ChannelEncoder(HuffmanTree tree) {
+		this.codeMap = BlockArchive.tableOf(tree);
+	}
+
+	/**
+	 * Creates an encoder that codes messages with a character-code map. The empty code of a tree with a
+	 * single character is written as "0", which {@link util.ChannelDecoder} reads back.
+	 * @param codeMap the character-code map used to code the messages
+	 */
+	public ChannelEncoder(HashMap<Character, String> codeMap) {
+		this.codeMap = new HashMap<>(codeMap);
+		this.codeMap.replaceAll((c, code) -> code.isEmpty() ? "0" : code);
+	}
+
+	/**
+	 * Codes a message and queues its frame
+	 * @param message the message to code
+	 * @throws IllegalArgumentException if the message contains a character without a code
+	 */
+	public void write(String message) {
+		BitWriter bits = new BitWriter(message.length() * 5L);
+		for(int i = 0; i < message.length(); i++) {
+			String code = codeMap.get(message.charAt(i));
+			if(code == null) {
+				throw new IllegalArgumentException("No code for character " + (int) message.charAt(i));
+			}
+			bits.write(code);
+		}
+		byte[] payload = bits.toByteArray();
+		if(pending.capacity() - pending.limit() < 4 + payload.length) {
+			// Move the unwritten bytes to a larger buffer
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.remaining() + 4 + payload.length));
+			larger.put(pending);
+			larger.flip();
+			pending = larger;
+		}
+		int start = pending.limit();
+		pending.limit(start + 4 + payload.length);
+		pending.putInt(start, message.length());
+		pending.put(start + 4, payload);
+	}
+
+	/**
+	 * Copies as many queued bytes as fit into a buffer
+	 * @param out the buffer to fill
+	 * @return true if all queued frames have been copied
+	 */
+	public boolean encode(ByteBuffer out) {
+		int n = Math.min(out.remaining(), pending.remaining());
+		out.put(out.position(), pending, pending.position(), n);
+		out.position(out.position() + n);
+		pending.position(pending.position() + n);
+		return compact();
+	}
+
+	/**
+	 * Writes as many queued bytes as the channel accepts without blocking
+	 * @param channel the channel to write to
+	 * @return true if all queued frames have been written; otherwise wait until the channel is writable again
+	 * @throws IOException if the channel cannot be written
+	 */
+	public boolean flush(WritableByteChannel channel) throws IOException {
+		while(pending.hasRemaining()) {
+			if(channel.write(pending) == 0) break;
+		}
+		return compact();
+	}
+
+	/**
+	 * Returns whether there are queued bytes left to write
+	 * @return true if some bytes have not been written yet
+	 */
+	public boolean hasPending() {
+		return pending.hasRemaining();
+	}
+
+	/**
+	 * Releases the space of the written bytes once the queue is empty
+	 * @return true if the queue is empty
+	 */
+	private boolean compact() {
+		if(pending.hasRemaining()) return false;
+		pending.clear();
+		pending.limit(0);
+		return true;
+	}
+}
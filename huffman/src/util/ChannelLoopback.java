@@ -0,0 +1,113 @@
+package util;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+
+import impl.HuffmanTree;
+
+/**
+ * ChannelLoopback class to check {@link util.ChannelEncoder} and {@link util.ChannelDecoder} over a real socket<br>
+ * Sends every line of a text file as one message from a non-blocking client to a non-blocking server on the
+ * loopback interface, both driven by one {@link java.nio.channels.Selector}. The server reads through
+ * {@link util.ChannelDecoder#read(java.nio.channels.ReadableByteChannel)} with a buffer of only a few bytes, so frames
+ * and codes are split across reads and the decoder has to resume in the middle of them. A stream that ends in the
+ * middle of a frame fails the check. The received messages are compared with the sent ones.
+ */
+public class ChannelLoopback {
+
+	/**
+	 * Reads the file and the read buffer size from the console and runs the loopback check
+	 * @param args arguments passed through the command line
+	 */
+	public static void main(String[] args) {
+		Scanner scanner = new Scanner(System.in);
+		System.out.println("Please enter the name of the file whose lines are sent as messages: ");
+		String readFileName = scanner.nextLine();
+		System.out.println("Please enter the size of the server's read buffer in bytes (default 7): ");
+		String line = scanner.nextLine().trim();
+		int readBufferSize = line.isEmpty() ? 7 : Integer.parseInt(line);
+		String text = Compression.readFile(readFileName);
+		List<String> sent = Arrays.asList(text.split("\n"));
+		try {
+			long startTime = System.currentTimeMillis();
+			List<String> received = runLoopback(new HuffmanTree(text), sent, readBufferSize);
+			long endTime = System.currentTimeMillis();
+			System.out.println("Messages Sent: " + sent.size() + ", Messages Received: " + received.size()
+					+ ", Identical: " + sent.equals(received) + ", Time: " + (endTime - startTime) + "ms");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Sends messages over a loopback connection and decodes them on the other side
+	 * @param tree the Huffman tree whose codes both sides use
+	 * @param messages the messages to send
+	 * @param readBufferSize the number of bytes the server reads at a time
+	 * @return the messages received, in order
+	 * @throws IOException if the connection fails, a frame cannot be decoded or the stream ends in the middle of a frame
+	 */
+	public static List<String> runLoopback(HuffmanTree tree, List<String> messages, int readBufferSize) throws IOException {
+		List<String> received = new ArrayList<>();
+		try (Selector selector = Selector.open();
+				ServerSocketChannel server = ServerSocketChannel.open();
+				SocketChannel client = SocketChannel.open()) {
+			server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			server.configureBlocking(false);
+			server.register(selector, SelectionKey.OP_ACCEPT);
+			client.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+			client.configureBlocking(false);
+			client.connect(server.getLocalAddress());
+			client.register(selector, SelectionKey.OP_CONNECT);
+			ChannelEncoder encoder = new ChannelEncoder(tree);
+			ChannelDecoder decoder = new ChannelDecoder(tree, readBufferSize);
+			for(String message: messages) {
+				encoder.write(message);
+			}
+			SocketChannel accepted = null;
+			try {
+				while(!decoder.isEndOfStream()) {
+					selector.select();
+					for(SelectionKey key: selector.selectedKeys()) {
+						if(key.isAcceptable()) {
+							SocketChannel channel = server.accept();
+							if(channel != null) {
+								accepted = channel;
+								accepted.configureBlocking(false);
+								accepted.register(selector, SelectionKey.OP_READ);
+							}
+						}else if(key.isConnectable()) {
+							if(client.finishConnect()) {
+								key.interestOps(SelectionKey.OP_WRITE);
+							}
+						}else if(key.isWritable()) {
+							// Write what the socket takes; the selector calls back once it can take more
+							if(encoder.flush(client)) {
+								client.shutdownOutput();
+								key.interestOps(0);
+							}
+						}else if(key.isReadable()) {
+							// Throws if the client's side ends in the middle of a frame
+							received.addAll(decoder.read((SocketChannel) key.channel()));
+						}
+					}
+					selector.selectedKeys().clear();
+				}
+			} finally {
+				if(accepted != null) accepted.close();
+			}
+		}
+		return received;
+	}
+}
@@ -105,7 +105,7 @@ public class Compression {
 	 * @param fn The name of the file to be read
 	 * @return The content of the file as a single string
 	 */
-	private static String readFile(String fn) {
+	static String readFile(String fn) {
 		StringBuilder sb = new StringBuilder();
 		File filename = new File(fn);
 		try (BufferedReader in = new BufferedReader(new FileReader(filename))){
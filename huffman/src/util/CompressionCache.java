@@ -0,0 +1,311 @@
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UTFDataFormatException;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CompressionCache Class<br>
+ * An on-disk cache of {@link util.Compression} results, so that compressing a file whose content has not changed
+ * costs one hashing pass instead of building the tree and encoding the text again. Entries are keyed by the SHA-256
+ * hash of the input together with {@link #SETTINGS}, which names the codec and must change whenever its output
+ * changes, and the default charset, which {@link util.Compression} reads the text with. An entry holds the
+ * code-character map, the compression ratio and the length and content of the compressed bytes.<br>
+ * Entries are written to a temporary file and moved into place, so other threads and processes never see a partial
+ * entry. A hit touches the modification time of its entry. An entry deleted while it is being read is treated as a
+ * miss, and so is an entry that is truncated or cannot be parsed, which is deleted.<br>
+ * The caches of this JVM that share a folder share a running total of its size, so the folder is only listed when
+ * the total exceeds the size limit. The entries that were used least recently are then deleted until the cache is
+ * back below {@link #EVICT_TO_PERCENT} percent of the limit, which leaves room for the next entries. The shared state
+ * also serves as lock object, since a file lock is held by the whole JVM.<br>
+ * Contains the following elements:<br>
+ * <ul>
+ *    <li><b>cacheDir</b> - the folder the entries are stored in</li>
+ *    <li><b>maxBytes</b> - the size limit of all entries together</li>
+ *    <li><b>hits</b> - the number of compressions answered from the cache</li>
+ *    <li><b>misses</b> - the number of compressions that had to be run</li>
+ * </ul>
+ */
+public class CompressionCache {
+
+	/**
+	 * the codec and format version the cached results were produced with
+	 */
+	public static final String SETTINGS = "char-huffman-2";
+
+	/**
+	 * the share of the size limit, in percent, that eviction brings the cache down to
+	 */
+	public static final int EVICT_TO_PERCENT = 90;
+
+	/**
+	 * the file name extension of cache entries
+	 */
+	private static final String ENTRY_SUFFIX = ".entry";
+
+	/**
+	 * the shared state of each cache folder, by canonical path
+	 */
+	private static final ConcurrentHashMap<Path, Folder> FOLDERS = new ConcurrentHashMap<>();
+
+	/**
+	 * State shared by all caches of this JVM in the same folder
+	 */
+	private static class Folder {
+		long bytes = -1; // size of all entries, counted since the last listing; -1 until the folder is listed
+	}
+
+	/**
+	 * the folder the entries are stored in
+	 */
+	private Path cacheDir;
+
+	/**
+	 * the size limit of all entries together in bytes
+	 */
+	private long maxBytes;
+
+	/**
+	 * the state shared by all caches in this folder, also used as their lock object
+	 */
+	private Folder folder;
+
+	/**
+	 * the number of compressions answered from the cache
+	 */
+	public int hits;
+
+	/**
+	 * the number of compressions that had to be run
+	 */
+	public int misses;
+
+	/**
+	 * Creates a cache in a folder, creating the folder if needed
+	 * @param cacheDir the folder the entries are stored in
+	 * @param maxBytes the size limit of all entries together in bytes
+	 * @throws IOException if the folder cannot be created
+	 */
+	public CompressionCache(String cacheDir, long maxBytes) throws IOException {
+		this.cacheDir = Files.createDirectories(Paths.get(cacheDir));
+		this.maxBytes = maxBytes;
+		this.folder = FOLDERS.computeIfAbsent(this.cacheDir.toRealPath(), p -> new Folder());
+	}
+
+	/**
+	 * Compresses a text file like {@link util.Compression#Compression(String, String)}, reusing the cached result
+	 * when a file with the same content was compressed before
+	 * @param readFileName Name of the text file to be compressed
+	 * @param writeFileName Name of the output bin file where the encoded content will be written
+	 * @return the Compression holding the code-character map and the compression ratio
+	 * @throws IOException if a file cannot be read or written
+	 */
+	public Compression compress(String readFileName, String writeFileName) throws IOException {
+		Path entry = cacheDir.resolve(keyOf(readFileName) + ENTRY_SUFFIX);
+		Compression cached = readEntry(entry, writeFileName);
+		if(cached != null) {
+			synchronized(this) {
+				hits++;
+			}
+			return cached;
+		}
+		synchronized(this) {
+			misses++;
+		}
+		Compression compress = new Compression(readFileName, writeFileName);
+		long entryBytes = writeEntry(entry, compress, writeFileName);
+		evict(entryBytes);
+		return compress;
+	}
+
+	/**
+	 * Returns the cache key of a file: the SHA-256 hash of {@link #SETTINGS}, the default charset and the content
+	 * @param fileName the name of the file
+	 * @return the cache key
+	 * @throws IOException if the file cannot be read
+	 */
+	private static String keyOf(String fileName) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		// The null character ends the settings, so they cannot run into the content
+		digest.update((SETTINGS + "/" + Charset.defaultCharset().name() + "\0").getBytes());
+		byte[] buffer = new byte[1 << 16];
+		try (InputStream in = new FileInputStream(fileName)) {
+			int n;
+			while((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Reads a cache entry and writes its compressed bytes to the output file
+	 * @param entry the entry file
+	 * @param writeFileName Name of the output bin file
+	 * @return the Compression stored in the entry, or null if there is no such entry or it is corrupt
+	 * @throws IOException if the entry or the output file cannot be read or written
+	 */
+	private static Compression readEntry(Path entry, String writeFileName) throws IOException {
+		Compression compress = new Compression();
+		try (DataInputStream is = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)))) {
+			int size = is.readInt();
+			if(size < 0) return deleteCorrupt(entry);
+			HashMap<String, Character> codemap = new HashMap<>();
+			for(int i = 0; i < size; i++) {
+				String code = is.readUTF();
+				codemap.put(code, is.readChar());
+			}
+			compress.codeToChar = codemap;
+			compress.compressRatio = is.readDouble();
+			long length = is.readLong();
+			if(length < 0) return deleteCorrupt(entry);
+			try (OutputStream out = new BufferedOutputStream(new FileOutputStream(writeFileName))) {
+				byte[] buffer = new byte[1 << 16];
+				long remaining = length;
+				while(remaining > 0) {
+					int n = is.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+					if(n < 0) throw new EOFException();
+					out.write(buffer, 0, n);
+					remaining -= n;
+				}
+			}
+			if(is.read() >= 0) return deleteCorrupt(entry);
+		} catch (NoSuchFileException e) {
+			// Never cached, or evicted by another thread or process
+			return null;
+		} catch (EOFException | UTFDataFormatException e) {
+			// Truncated or damaged, e.g. by a crash of a process without atomic moves
+			return deleteCorrupt(entry);
+		}
+		try {
+			Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (NoSuchFileException e) {
+			// Evicted after it was read
+		}
+		return compress;
+	}
+
+	/**
+	 * Deletes an entry that cannot be read, so it is written again by the next miss
+	 * @param entry the entry file
+	 * @return null, the result of reading an entry that is not there
+	 * @throws IOException if the entry cannot be deleted
+	 */
+	private static Compression deleteCorrupt(Path entry) throws IOException {
+		Files.deleteIfExists(entry);
+		return null;
+	}
+
+	/**
+	 * Stores a compression result as a cache entry
+	 * @param entry the entry file
+	 * @param compress the Compression holding the code-character map and the compression ratio
+	 * @param writeFileName Name of the bin file holding the compressed bytes
+	 * @return the size of the entry in bytes
+	 * @throws IOException if the entry cannot be written
+	 */
+	private long writeEntry(Path entry, Compression compress, String writeFileName) throws IOException {
+		Path temp = Files.createTempFile(cacheDir, "entry", ".tmp");
+		try {
+			try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				os.writeInt(compress.codeToChar.size());
+				for(Map.Entry<String, Character> e: compress.codeToChar.entrySet()) {
+					os.writeUTF(e.getKey());
+					os.writeChar(e.getValue());
+				}
+				os.writeDouble(compress.compressRatio);
+				os.writeLong(Files.size(Paths.get(writeFileName)));
+				Files.copy(Paths.get(writeFileName), os);
+			}
+			long entryBytes = Files.size(temp);
+			try {
+				Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return entryBytes;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Adds a new entry to the running size of the folder and, once it exceeds the size limit, deletes the least
+	 * recently used entries. A lock file keeps several processes from evicting at the same time; their entries are
+	 * counted when the folder is listed.
+	 * @param entryBytes the size of the entry just written
+	 * @throws IOException if the cache folder cannot be listed
+	 */
+	private void evict(long entryBytes) throws IOException {
+		synchronized(folder) {
+			if(folder.bytes >= 0) {
+				folder.bytes += entryBytes;
+				if(folder.bytes <= maxBytes) return;
+			}
+			try (RandomAccessFile lockFile = new RandomAccessFile(new File(cacheDir.toFile(), ".lock"), "rw")) {
+				FileLock lock = lockFile.getChannel().lock();
+				try {
+					List<File> entries = new ArrayList<>();
+					long total = 0;
+					for(File f: cacheDir.toFile().listFiles()) {
+						if(f.getName().endsWith(ENTRY_SUFFIX)) {
+							entries.add(f);
+							total += f.length();
+						}
+					}
+					if(total > maxBytes) {
+						// Sort by last use, oldest first; read the times once since hits may touch them meanwhile
+						Map<File, Long> lastUsed = new HashMap<>();
+						for(File f: entries) {
+							lastUsed.put(f, f.lastModified());
+						}
+						entries.sort((a, b) -> Long.compare(lastUsed.get(a), lastUsed.get(b)));
+						long target = maxBytes / 100 * EVICT_TO_PERCENT;
+						for(File f: entries) {
+							if(total <= target) break;
+							long size = f.length();
+							if(f.delete()) {
+								total -= size;
+							}
+						}
+					}
+					folder.bytes = total;
+				} finally {
+					lock.release();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,361 @@
+package util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+import impl.HuffmanTree;
+
+/**
+ * CompressionReport Class<br>
+ * Measures how well a text compresses with Huffman coding without writing any output. The report is computed
+ * either from an existing {@link impl.HuffmanTree HuffmanTree} or by streaming a file and counting its characters in
+ * arrays, so files larger than memory can be scanned.
+ * Contains the following elements:<br>
+ * <ul>
+ *    <li><b>symbolCount</b> - the number of characters in the text</li>
+ *    <li><b>inputBytes</b> - the size of the text in bytes</li>
+ *    <li><b>distinctSymbols</b> - the number of different characters in the text</li>
+ *    <li><b>entropy</b> - the Shannon entropy of the character distribution in bits per character</li>
+ *    <li><b>averageCodeLength</b> - the average Huffman code length in bits per character</li>
+ *    <li><b>codeLengthHistogram</b> - the number of characters with each code length</li>
+ *    <li><b>maxDepth</b> - the depth of the Huffman tree, i.e. the longest code</li>
+ *    <li><b>tableBytes</b> - the size of the code table as stored by {@link util.BlockArchive}</li>
+ *    <li><b>compressedBytes</b> - the size of the coded text with a single table, table excluded</li>
+ *    <li><b>projectedBytes</b> - for each block size, the size of a {@link util.BlockArchive} with one table per block</li>
+ * </ul>
+ */
+public class CompressionReport {
+
+	/**
+	 * the block sizes, in characters, projected when none are given
+	 */
+	public static final int[] DEFAULT_BLOCK_SIZES = {64 * 1024, 1024 * 1024, 16 * 1024 * 1024};
+
+	/**
+	 * the number of characters in the text
+	 */
+	public long symbolCount;
+
+	/**
+	 * the size of the text in bytes: the file size, or the UTF-8 size when computed from a tree
+	 */
+	public long inputBytes;
+
+	/**
+	 * the number of different characters in the text
+	 */
+	public int distinctSymbols;
+
+	/**
+	 * the Shannon entropy of the character distribution in bits per character
+	 */
+	public double entropy;
+
+	/**
+	 * the average Huffman code length in bits per character
+	 */
+	public double averageCodeLength;
+
+	/**
+	 * the number of characters with each code length
+	 */
+	public TreeMap<Integer, Integer> codeLengthHistogram = new TreeMap<>();
+
+	/**
+	 * the depth of the Huffman tree, i.e. the longest code
+	 */
+	public int maxDepth;
+
+	/**
+	 * the size of the code table as stored by {@link util.BlockArchive}
+	 */
+	public int tableBytes;
+
+	/**
+	 * the size of the coded text with a single table, table excluded
+	 */
+	public long compressedBytes;
+
+	/**
+	 * for each block size in characters, the projected size of a {@link util.BlockArchive} with one table per block
+	 */
+	public LinkedHashMap<Integer, Long> projectedBytes = new LinkedHashMap<>();
+
+	/**
+	 * Computes the report for an existing Huffman tree. Block sizes cannot be projected, because the tree
+	 * does not tell where in the text the characters occur.
+	 * @param tree the Huffman tree built from the text
+	 */
+	public CompressionReport(HuffmanTree tree) {
+		long[] counts = new long[Character.MAX_VALUE + 1];
+		for(Map.Entry<Character, Integer> e: tree.getFrequencyMap().entrySet()) {
+			counts[e.getKey()] = e.getValue();
+		}
+		summarize(counts, BlockArchive.tableOf(tree));
+		this.inputBytes = utf8Bytes(counts);
+	}
+
+	/**
+	 * Computes the report for a text file by streaming it once. The characters are counted once per block of the
+	 * smallest block size; the counts of a larger block are the sum of the counts of the smaller blocks it is made
+	 * of, so every block size must be a multiple of the smallest one.
+	 * @param readFileName the name of the text file to scan
+	 * @param blockSizes the block sizes, in characters, to project the compressed size for
+	 * @throws IOException if the file cannot be read
+	 * @throws IllegalArgumentException if a block size is not positive or not a multiple of the smallest block size
+	 */
+	public CompressionReport(String readFileName, int... blockSizes) throws IOException {
+		int[] sizes = blockSizes.clone();
+		Arrays.sort(sizes);
+		for(int size: sizes) {
+			if(size <= 0 || size % sizes[0] != 0) {
+				throw new IllegalArgumentException("Block size " + size + " is not a positive multiple of " + sizes[0]);
+			}
+		}
+		BlockCounter blockCounter = new BlockCounter(sizes);
+		char[] buffer = new char[64 * 1024];
+		try (BufferedReader in = new BufferedReader(new FileReader(readFileName), buffer.length)) {
+			int n;
+			while((n = in.read(buffer)) > 0) {
+				blockCounter.count(buffer, n);
+			}
+		}
+		blockCounter.finish();
+		long[] counts = blockCounter.counts();
+		if(totalOf(counts) > 0) {
+			summarize(counts, BlockArchive.tableOf(new HuffmanTree(frequencyMapOf(counts))));
+		}
+		for(int i = 0; i < sizes.length; i++) {
+			// The empty index segment of a new archive and the segment of the append, 16 bytes each without entries
+			projectedBytes.put(sizes[i], BlockArchive.HEADER_SIZE + 32 + blockCounter.bytes[i]);
+		}
+		this.inputBytes = new File(readFileName).length();
+	}
+
+	/**
+	 * Computes the statistics that depend on the character counts and the code table
+	 * @param counts the exact number of occurrences of each character
+	 * @param table the character-code map
+	 */
+	private void summarize(long[] counts, HashMap<Character, String> table) {
+		symbolCount = totalOf(counts);
+		distinctSymbols = table.size();
+		tableBytes = BlockArchive.tableBytes(table);
+		long bits = 0;
+		for(Map.Entry<Character, String> e: table.entrySet()) {
+			long count = counts[e.getKey()];
+			int length = e.getValue().length();
+			double p = (double) count / symbolCount;
+			entropy -= p * Math.log(p) / Math.log(2);
+			bits += count * length;
+			codeLengthHistogram.merge(length, 1, Integer::sum);
+			maxDepth = Math.max(maxDepth, length);
+		}
+		averageCodeLength = symbolCount == 0 ? 0 : (double) bits / symbolCount;
+		compressedBytes = (bits + 7) / 8;
+	}
+
+	/**
+	 * Counts the characters of consecutive blocks and adds up their projected size for several block sizes.
+	 * Characters are numbered densely in order of first occurrence, so finishing a block only visits the
+	 * characters seen so far instead of the whole char range.
+	 */
+	private static class BlockCounter {
+		int[] blockSizes; // block sizes in characters, smallest first
+		int[] index = new int[Character.MAX_VALUE + 1]; // dense number of each character plus one, 0 if not seen
+		char[] symbols = new char[Character.MAX_VALUE + 1]; // character of each dense number
+		int alphabetSize; // number of characters seen
+		int[] blockCounts = new int[Character.MAX_VALUE + 1]; // counts of the current block of the smallest size
+		int filled; // number of characters in the current block of the smallest size
+		int[][] largerCounts; // counts of the current block of each larger size
+		int[] largerFilled; // number of characters in the current block of each larger size
+		long[] totalCounts = new long[Character.MAX_VALUE + 1]; // counts of the whole text
+		long[] bytes; // projected size of the finished blocks of each size, tables and index entries included
+
+		BlockCounter(int[] blockSizes) {
+			this.blockSizes = blockSizes;
+			this.largerCounts = new int[Math.max(0, blockSizes.length - 1)][Character.MAX_VALUE + 1];
+			this.largerFilled = new int[largerCounts.length];
+			this.bytes = new long[blockSizes.length];
+		}
+
+		void count(char[] buffer, int n) {
+			int blockSize = blockSizes.length > 0 ? blockSizes[0] : Integer.MAX_VALUE;
+			int i = 0;
+			while(i < n) {
+				int end = (int) Math.min(n, (long) i + blockSize - filled);
+				filled += end - i;
+				for(; i < end; i++) {
+					int id = index[buffer[i]];
+					if(id == 0) {
+						id = ++alphabetSize;
+						index[buffer[i]] = id;
+						symbols[id - 1] = buffer[i];
+					}
+					blockCounts[id - 1]++;
+				}
+				if(filled == blockSize) {
+					finishBlock();
+				}
+			}
+		}
+
+		void finishBlock() {
+			for(int id = 0; id < alphabetSize; id++) {
+				totalCounts[id] += blockCounts[id];
+			}
+			if(blockSizes.length > 0) {
+				bytes[0] += blockBytes(blockCounts, alphabetSize);
+				for(int i = 0; i < largerCounts.length; i++) {
+					int[] counts = largerCounts[i];
+					for(int id = 0; id < alphabetSize; id++) {
+						counts[id] += blockCounts[id];
+					}
+					largerFilled[i] += filled;
+					if(largerFilled[i] == blockSizes[i + 1]) {
+						finishLargerBlock(i);
+					}
+				}
+			}
+			Arrays.fill(blockCounts, 0, alphabetSize, 0);
+			filled = 0;
+		}
+
+		void finishLargerBlock(int i) {
+			bytes[i + 1] += blockBytes(largerCounts[i], alphabetSize);
+			Arrays.fill(largerCounts[i], 0, alphabetSize, 0);
+			largerFilled[i] = 0;
+		}
+
+		void finish() {
+			if(filled > 0) finishBlock();
+			for(int i = 0; i < largerCounts.length; i++) {
+				if(largerFilled[i] > 0) finishLargerBlock(i);
+			}
+		}
+
+		long[] counts() {
+			long[] counts = new long[Character.MAX_VALUE + 1];
+			for(int id = 0; id < alphabetSize; id++) {
+				counts[symbols[id]] = totalCounts[id];
+			}
+			return counts;
+		}
+
+		/**
+		 * Returns the size a block takes in a {@link util.BlockArchive}: its table, the table offset in the
+		 * index, the coded characters and the index entry of the block
+		 * @param counts the counts of the block, by dense character number
+		 * @param alphabetSize the number of characters seen so far
+		 * @return the size in bytes
+		 */
+		static long blockBytes(int[] counts, int alphabetSize) {
+			int[] freq = new int[alphabetSize];
+			int distinct = 0;
+			for(int id = 0; id < alphabetSize; id++) {
+				if(counts[id] > 0) freq[distinct++] = counts[id];
+			}
+			int[] lengths = HuffmanTree.buildCodeLengths(Arrays.copyOf(freq, distinct));
+			long bits = 0;
+			int tableBytes = 4;
+			for(int i = 0; i < distinct; i++) {
+				bits += (long) freq[i] * lengths[i];
+				tableBytes += 4 + lengths[i];
+			}
+			return tableBytes + 8 + (bits + 7) / 8 + 24;
+		}
+	}
+
+	/**
+	 * Converts character counts into the frequency map taken by {@link impl.HuffmanTree#HuffmanTree(HashMap)}.
+	 * Counts are scaled down when their sum does not fit the int frequencies of the tree nodes; this can only
+	 * change code lengths by rounding and keeps every present character.
+	 * @param counts the number of occurrences of each character
+	 * @return the frequency map
+	 */
+	static HashMap<Character, Integer> frequencyMapOf(long[] counts) {
+		long total = totalOf(counts);
+		long scale = total / (Integer.MAX_VALUE / 2) + 1;
+		HashMap<Character, Integer> frequencyMap = new HashMap<>();
+		for(int c = 0; c < counts.length; c++) {
+			if(counts[c] > 0) frequencyMap.put((char) c, (int) Math.max(1, counts[c] / scale));
+		}
+		return frequencyMap;
+	}
+
+	/**
+	 * Returns the sum of character counts
+	 * @param counts the number of occurrences of each character
+	 * @return the total number of characters
+	 */
+	private static long totalOf(long[] counts) {
+		long total = 0;
+		for(long count: counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of bytes the counted characters take in UTF-8
+	 * @param counts the number of occurrences of each character
+	 * @return the size in bytes
+	 */
+	private static long utf8Bytes(long[] counts) {
+		long bytes = 0;
+		for(int c = 0; c < counts.length; c++) {
+			// A surrogate pair takes 4 bytes, i.e. 2 per surrogate character
+			int width = c < 0x80 ? 1 : c < 0x800 ? 2 : Character.isSurrogate((char) c) ? 2 : 3;
+			bytes += counts[c] * width;
+		}
+		return bytes;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("Characters: ").append(symbolCount).append(", Input Size: ").append(inputBytes).append(" bytes\n");
+		sb.append("Distinct Characters: ").append(distinctSymbols).append(", Table Size: ").append(tableBytes).append(" bytes\n");
+		sb.append("Entropy: ").append(String.format("%.4f", entropy)).append(" bits/char, Average Code Length: ")
+				.append(String.format("%.4f", averageCodeLength)).append(" bits/char, Max Depth: ").append(maxDepth).append("\n");
+		sb.append("Code Length Histogram (length=characters): ").append(codeLengthHistogram).append("\n");
+		sb.append("Compressed Size (one table): ").append(compressedBytes + tableBytes).append(" bytes");
+		if(inputBytes > 0) {
+			sb.append(", Compress Ratio: ").append((double) (compressedBytes + tableBytes) / inputBytes);
+		}
+		for(Map.Entry<Integer, Long> e: projectedBytes.entrySet()) {
+			sb.append("\nBlock Size: ").append(e.getKey()).append(" chars, Projected Size: ").append(e.getValue()).append(" bytes");
+			if(inputBytes > 0) {
+				sb.append(", Compress Ratio: ").append((double) e.getValue() / inputBytes);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Prints the report for a text file
+	 * @param args arguments passed through the command line
+	 */
+	public static void main(String[] args) {
+		Scanner scanner = new Scanner(System.in);
+		System.out.println("Please enter the name of the file to be analysed: ");
+		String readFileName = scanner.nextLine();
+		try {
+			long startTime = System.currentTimeMillis();
+			CompressionReport report = new CompressionReport(readFileName, DEFAULT_BLOCK_SIZES);
+			long endTime = System.currentTimeMillis();
+			System.out.println(report);
+			System.out.println("Report Time: " + (endTime - startTime) + "ms");
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
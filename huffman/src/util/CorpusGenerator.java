@@ -0,0 +1,173 @@
+package util;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * CorpusGenerator Class<br>
+ * Writes synthetic text files of any size for load tests. The same distribution, size and seed always give the
+ * same file, so benchmark runs can be repeated. Files are written in UTF-8 and never contain the null character,
+ * which the Huffman trees use to mark internal nodes.
+ * The available distributions are:
+ * <ul>
+ *    <li><b>ENGLISH</b> - sentences of common English words, chosen with Zipf frequencies, in lines of about 70 characters</li>
+ *    <li><b>ZIPF</b> - letters, digits, space, period and newline with Zipf frequencies</li>
+ *    <li><b>RANDOM</b> - uniformly random Latin-1 characters from 1 to 255; in UTF-8 the characters from 128 up
+ *    take two bytes, so the file is about 1.5 bytes per character and is not random bytes</li>
+ *    <li><b>SINGLE</b> - a single character repeated</li>
+ * </ul>
+ */
+public class CorpusGenerator {
+
+	/**
+	 * The distributions the generator can produce
+	 */
+	public enum Distribution { ENGLISH, ZIPF, RANDOM, SINGLE }
+
+	/**
+	 * common English words, most frequent first
+	 */
+	private static final String[] WORDS = {
+		"the", "of", "and", "to", "a", "in", "is", "you", "that", "it", "he", "was", "for", "on", "are", "as", "with",
+		"his", "they", "I", "at", "be", "this", "have", "from", "or", "one", "had", "by", "word", "but", "not", "what",
+		"all", "were", "we", "when", "your", "can", "said", "there", "use", "an", "each", "which", "she", "do", "how",
+		"their", "if", "will", "up", "other", "about", "out", "many", "then", "them", "these", "so", "some", "her",
+		"would", "make", "like", "him", "into", "time", "has", "look", "two", "more", "write", "go", "see", "number",
+		"no", "way", "could", "people", "my", "than", "first", "water", "been", "call", "who", "oil", "its", "now",
+		"find", "long", "down", "day", "did", "get", "come", "made", "may", "part", "girls", "little", "mother",
+		"home", "garden", "letter", "journal", "house", "heart", "kind", "happy", "good", "dear", "never", "always"
+	};
+
+	/**
+	 * the alphabet of the ZIPF distribution, most frequent first
+	 */
+	private static final String ZIPF_ALPHABET = " etaoinshrdlucmfwypvbgkjqxzETAOINSHRDLUCMFWYPVBGKJQXZ0123456789.\n";
+
+	/**
+	 * Writes a synthetic text file
+	 * @param fileName the name of the file to be written
+	 * @param size the number of characters to write
+	 * @param distribution the distribution of the text
+	 * @param seed the seed of the random generator
+	 * @throws IOException if the file cannot be written
+	 */
+	public static void generate(String fileName, long size, Distribution distribution, long seed) throws IOException {
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), 1 << 16)) {
+			generate(out, size, distribution, seed);
+		}
+	}
+
+	/**
+	 * Writes synthetic text to a Writer
+	 * @param out the Writer to write to
+	 * @param size the number of characters to write
+	 * @param distribution the distribution of the text
+	 * @param seed the seed of the random generator
+	 * @throws IOException if the text cannot be written
+	 */
+	public static void generate(Writer out, long size, Distribution distribution, long seed) throws IOException {
+		Random random = new Random(seed);
+		double[] wordCdf = zipfCdf(WORDS.length);
+		double[] charCdf = zipfCdf(ZIPF_ALPHABET.length());
+		char[] chunk = new char[1 << 16];
+		StringBuilder sentence = new StringBuilder();
+		int sentencePos = 0;
+		int column = 0;
+		long written = 0;
+		while(written < size) {
+			int n = (int) Math.min(chunk.length, size - written);
+			for(int i = 0; i < n; i++) {
+				switch(distribution) {
+				case ENGLISH:
+					if(sentencePos == sentence.length()) {
+						sentence.setLength(0);
+						sentencePos = 0;
+						column = nextSentence(random, wordCdf, sentence, column);
+					}
+					chunk[i] = sentence.charAt(sentencePos++);
+					break;
+				case ZIPF:
+					chunk[i] = ZIPF_ALPHABET.charAt(sample(random, charCdf));
+					break;
+				case RANDOM:
+					chunk[i] = (char) (1 + random.nextInt(255));
+					break;
+				default:
+					chunk[i] = 'a';
+				}
+			}
+			out.write(chunk, 0, n);
+			written += n;
+		}
+	}
+
+	/**
+	 * Appends one sentence of Zipf distributed words, breaking lines at about 70 characters
+	 * @param random the random generator
+	 * @param wordCdf the cumulative word distribution
+	 * @param sentence the buffer the sentence is appended to
+	 * @param column the column the sentence starts at
+	 * @return the column after the sentence
+	 */
+	private static int nextSentence(Random random, double[] wordCdf, StringBuilder sentence, int column) {
+		int words = 4 + random.nextInt(16);
+		for(int w = 0; w < words; w++) {
+			String word = WORDS[sample(random, wordCdf)];
+			if(w == 0) {
+				word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+			}
+			sentence.append(word);
+			column += word.length();
+			if(w == words - 1) {
+				sentence.append(random.nextInt(5) == 0 ? '?' : '.');
+				column++;
+			}else if(random.nextInt(8) == 0) {
+				sentence.append(',');
+				column++;
+			}
+			if(column > 70) {
+				sentence.append('\n');
+				column = 0;
+			}else {
+				sentence.append(' ');
+				column++;
+			}
+		}
+		return column;
+	}
+
+	/**
+	 * Returns the cumulative Zipf distribution with exponent 1 over n ranks
+	 * @param n the number of ranks
+	 * @return the cumulative probability of every rank
+	 */
+	private static double[] zipfCdf(int n) {
+		double[] cdf = new double[n];
+		double sum = 0;
+		for(int i = 0; i < n; i++) {
+			sum += 1.0 / (i + 1);
+			cdf[i] = sum;
+		}
+		for(int i = 0; i < n; i++) {
+			cdf[i] /= sum;
+		}
+		return cdf;
+	}
+
+	/**
+	 * Draws a rank from a cumulative distribution
+	 * @param random the random generator
+	 * @param cdf the cumulative distribution
+	 * @return the rank drawn
+	 */
+	private static int sample(Random random, double[] cdf) {
+		int i = Arrays.binarySearch(cdf, random.nextDouble());
+		return Math.min(cdf.length - 1, i >= 0 ? i : -i - 1);
+	}
+}
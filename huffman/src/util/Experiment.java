@@ -1,6 +1,7 @@
 package util;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Scanner;
 
@@ -18,9 +19,19 @@ public class Experiment {
 		String compressPath = scanner.nextLine();
 		System.out.println("Please enter the name of folder to store the retrieved/decompressed files: ");
 		String decompressPath = scanner.nextLine();
-		runExperiments(readPath, compressPath, decompressPath);
+		System.out.println("Please enter the name of folder to cache compressed files, or leave it empty to always compress: ");
+		String cachePath = scanner.nextLine();
+		CompressionCache cache = null;
+		if(!cachePath.trim().isEmpty()) {
+			try {
+				cache = new CompressionCache(cachePath, 1024L * 1024 * 1024);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		runExperiments(readPath, compressPath, decompressPath, cache);
 	}
-	private static void runExperiments(String readPath, String compressPath, String decompressPath) {
+	private static void runExperiments(String readPath, String compressPath, String decompressPath, CompressionCache cache) {
 		File folder = new File(readPath);
 		File[] listOfFiles = folder.listFiles();
 		
@@ -31,7 +42,17 @@ public class Experiment {
 		        String writeName = fileName.substring(0, fileName.length()-4) + ".bin";
 		        // Compress a file and get Huffman code
 		        long startCompressTime = System.currentTimeMillis();
-		        Compression compress = new Compression(readPath + fileName, compressPath + writeName);
+		        Compression compress;
+		        if(cache == null) {
+		        	compress = new Compression(readPath + fileName, compressPath + writeName);
+		        }else {
+		        	try {
+		        		compress = cache.compress(readPath + fileName, compressPath + writeName);
+		        	} catch (IOException e) {
+		        		e.printStackTrace();
+		        		continue;
+		        	}
+		        }
 		        long endCompressTime = System.currentTimeMillis();
 		        System.out.println("Compress Time: " + (endCompressTime - startCompressTime) + "ms, Compress Ratio: " + compress.compressRatio);
 		        HashMap<String, Character> codemap = compress.codeToChar;
@@ -0,0 +1,92 @@
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import impl.WordHuffmanTree;
+
+/**
+ * WordCompression Class<br>
+ * This class takes a text file and compresses it using a word-level canonical Huffman code, see
+ * {@link impl.WordHuffmanTree WordHuffmanTree}. Unlike {@link util.Compression} the output file is self-contained:
+ * <ul>
+ *    <li><b>header</b> - the magic number and the number of words in the dictionary</li>
+ *    <li><b>dictionary</b> - every word in canonical code order, each followed by its code length</li>
+ *    <li><b>payload</b> - the number of coded words followed by their codes, least significant bit first</li>
+ * </ul>
+ * Contains the following elements:<br>
+ * <ul>
+ * 	  <li><b>compressRatio</b> - the size of the output file, dictionary included, divided by the size of the text in UTF-8</li>
+ * </ul>
+ */
+public class WordCompression {
+
+	/**
+	 * the magic number at the start of every word-coded file ("HUFW")
+	 */
+	static final int MAGIC = 0x48554657;
+
+	/**
+	 * the size of the output file, dictionary included, divided by the size of the text in UTF-8
+	 */
+	public double compressRatio;
+
+	/**
+	 * Default WordCompression constructor
+	 */
+	public WordCompression() {}
+
+	/**
+	 * WordCompression Class constructor that takes a name of a text file to be compressed and name of output bin file
+	 * <p>Reads the content of the text file, builds the word dictionary and its canonical code, and writes both
+	 * together with the coded text. Stores the compression ratio in {@link util.WordCompression#compressRatio compressRatio}</p>
+	 * @param readFileName Name of the text file to be compressed
+	 * @param writeFileName Name of the output bin file where the dictionary and encoded content will be written
+	 */
+	public WordCompression(String readFileName, String writeFileName) {
+		// Read file
+		String tobeEncode = Compression.readFile(readFileName);
+		// Build the word dictionary and its code
+		WordHuffmanTree tree = new WordHuffmanTree(tobeEncode);
+		// Encode the words
+		BitWriter bits = new BitWriter(tobeEncode.length());
+		long[] codes = tree.getCodes();
+		int[] codeLengths = tree.getCodeLengths();
+		for(int symbol: tree.getSymbols()) {
+			bits.write(codes[symbol], codeLengths[symbol]);
+		}
+		// Write dictionary and encoded words to a bin file
+		long fileSize = writeFile(tree, bits, writeFileName);
+		this.compressRatio = (double) fileSize / Math.max(1, tobeEncode.getBytes(StandardCharsets.UTF_8).length);
+	}
+
+	/**
+	 * Writes the dictionary, the code lengths and the coded words to a file
+	 * @param tree the word tree holding the dictionary and code lengths
+	 * @param bits the coded words
+	 * @param fileName the name of the file to be written to
+	 * @return the number of bytes written
+	 */
+	private static long writeFile(WordHuffmanTree tree, BitWriter bits, String fileName) {
+		List<String> words = tree.getWords();
+		try (DataOutputStream os = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)))) {
+			os.writeInt(MAGIC);
+			os.writeInt(words.size());
+			for(int i = 0; i < words.size(); i++) {
+				os.writeUTF(words.get(i));
+				os.writeByte(tree.getCodeLengths()[i]);
+			}
+			os.writeInt(tree.getSymbols().length);
+			os.write(bits.toByteArray());
+			os.flush();
+			return os.size();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,114 @@
+package util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import impl.WordHuffmanTree;
+
+/**
+ * WordDecompression Class<br>
+ * Takes a binary file written by {@link util.WordCompression}, decodes it with the dictionary stored in the file and
+ * writes the text to another file. No code map has to be passed in, and every decoded code produces a whole word.
+ * Contains the following elements:<br>
+ * <ul>
+ *  <li><b>tree</b> - the canonical word code rebuilt from the stored dictionary</li>
+ * </ul>
+ */
+public class WordDecompression {
+
+	/**
+	 * the canonical word code rebuilt from the stored dictionary
+	 */
+	private WordHuffmanTree tree;
+
+	/**
+	 * Default constructor
+	 */
+	public WordDecompression() {}
+
+	/**
+	 * Constructor for WordDecompression class.
+	 * Reads the compressed binary file, rebuilds the word code from its dictionary and decodes the compressed data.
+	 * @param readFileName The name of the compressed binary file to be read.
+	 * @param writeFileName The name of the decompressed file to be written.
+	 */
+	public WordDecompression(String readFileName, String writeFileName) {
+		try (DataInputStream is = new DataInputStream(new BufferedInputStream(new FileInputStream(readFileName)))) {
+			if(is.readInt() != WordCompression.MAGIC) {
+				throw new IOException(readFileName + " is not a word-coded file");
+			}
+			// Read the dictionary and rebuild the code
+			int size = is.readInt();
+			List<String> words = new ArrayList<>(size);
+			int[] codeLengths = new int[size];
+			for(int i = 0; i < size; i++) {
+				words.add(is.readUTF());
+				codeLengths[i] = is.readUnsignedByte();
+			}
+			this.tree = new WordHuffmanTree(words, codeLengths);
+			int wordCount = is.readInt();
+			byte[] payload = is.readAllBytes();
+			writeFile(writeFileName, getDecodedString(payload, wordCount, tree));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Decodes a canonical word code. The codes of one length are consecutive numbers, so a code is complete as soon
+	 * as the bits read so far fall into the range of codes of their length; the word is then found by its offset in
+	 * that range, without walking a tree.
+	 * @param payload the coded words, least significant bit first
+	 * @param wordCount the number of words to decode
+	 * @param tree the canonical word code
+	 * @return the decoded String
+	 */
+	public static String getDecodedString(byte[] payload, int wordCount, WordHuffmanTree tree) {
+		int[] codeLengths = tree.getCodeLengths();
+		long[] codes = tree.getCodes();
+		List<String> words = tree.getWords();
+		int maxLength = codeLengths.length == 0 ? 0 : codeLengths[codeLengths.length - 1];
+		// For every length: the first code, the number of codes and the symbol number of the first code
+		long[] firstCode = new long[maxLength + 1];
+		int[] count = new int[maxLength + 1];
+		int[] firstSymbol = new int[maxLength + 1];
+		for(int i = codeLengths.length - 1; i >= 0; i--) {
+			firstCode[codeLengths[i]] = codes[i];
+			firstSymbol[codeLengths[i]] = i;
+			count[codeLengths[i]]++;
+		}
+		StringBuilder sb = new StringBuilder();
+		long code = 0;
+		int length = 0;
+		int decoded = 0;
+		for(long i = 0; decoded < wordCount && i < payload.length * 8L; i++) {
+			code = (code << 1) | ((payload[(int) (i >>> 3)] >>> (i & 7)) & 1);
+			length++;
+			if(count[length] > 0 && code >= firstCode[length] && code - firstCode[length] < count[length]) {
+				sb.append(words.get(firstSymbol[length] + (int) (code - firstCode[length])));
+				decoded++;
+				code = 0;
+				length = 0;
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes a given string to a file with the specified file name
+	 * @param fileName the name of the file to write the text to
+	 * @param text the text to be written to the file
+	 * @throws IOException if the file cannot be written
+	 */
+	private static void writeFile(String fileName, String text) throws IOException {
+		try (BufferedWriter out = new BufferedWriter(new FileWriter(fileName))) {
+			out.write(text);
+		}
+	}
+}